@@ -31,7 +31,16 @@ bukkit {
     }
 }
 
+configurations {
+    testImplementation {
+        extendsFrom(compileOnly.get())
+    }
+}
+
 tasks {
+    test {
+        useJUnitPlatform()
+    }
     shadowJar {
         exclude("com/cryptomorin/xseries/messages/**")
         exclude("com/cryptomorin/xseries/particles/**")
@@ -53,6 +62,7 @@ tasks {
         exclude("com/cryptomorin/xseries/profiles/**")
         exclude("com/cryptomorin/xseries/reflection/**")
         relocate("com.cryptomorin.xseries", "dev.jaqobb.message_editor.library.xseries")
+        relocate("com.github.benmanes.caffeine", "dev.jaqobb.message_editor.library.caffeine")
     }
 }
 
@@ -70,4 +80,12 @@ dependencies {
     compileOnly("com.comphenix.protocol:ProtocolLib:5.3.0")
     compileOnly("me.clip:placeholderapi:2.11.6")
     implementation("com.github.cryptomorin:XSeries:11.3.0")
+    implementation("com.github.ben-manes.caffeine:caffeine:3.1.8") {
+        exclude(group = "org.checkerframework")
+        exclude(group = "com.google.errorprone")
+    }
+    testImplementation(platform("org.junit:junit-bom:5.11.3"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testImplementation("com.google.code.gson:gson:2.11.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
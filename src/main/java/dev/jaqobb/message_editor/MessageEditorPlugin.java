@@ -4,8 +4,6 @@ import com.comphenix.protocol.ProtocolLibrary;
 import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.utility.MinecraftVersion;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import dev.jaqobb.message_editor.command.MessageEditorCommand;
 import dev.jaqobb.message_editor.command.MessageEditorCommandTabCompleter;
 import dev.jaqobb.message_editor.listener.packet.BossBarPacketListener;
@@ -15,6 +13,7 @@ import dev.jaqobb.message_editor.listener.packet.EntityNamePacketListener;
 import dev.jaqobb.message_editor.listener.packet.InventoryItemsPacketListener;
 import dev.jaqobb.message_editor.listener.packet.InventoryTitlePacketListener;
 import dev.jaqobb.message_editor.listener.packet.KickPacketListener;
+import dev.jaqobb.message_editor.listener.packet.MessagePacketListener;
 import dev.jaqobb.message_editor.listener.packet.ScoreboardEntryPacketListener;
 import dev.jaqobb.message_editor.listener.packet.ScoreboardTitlePacketListener;
 import dev.jaqobb.message_editor.listener.player.PlayerChatListener;
@@ -26,15 +25,32 @@ import dev.jaqobb.message_editor.listener.player.PlayerQuitListener;
 import dev.jaqobb.message_editor.listener.plugin.PluginDisableListener;
 import dev.jaqobb.message_editor.listener.plugin.PluginEnableListener;
 import dev.jaqobb.message_editor.menu.MenuManager;
+import dev.jaqobb.message_editor.message.EditedMessage;
 import dev.jaqobb.message_editor.message.MessageData;
 import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessageEditData;
 import dev.jaqobb.message_editor.message.MessageEditInfo;
+import dev.jaqobb.message_editor.message.MessageEditSnapshot;
+import dev.jaqobb.message_editor.message.MessageMissCache;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.message.MessageTranslationTable;
+import dev.jaqobb.message_editor.message.PlayerPlaceholderCache;
+import dev.jaqobb.message_editor.message.cache.ItemDisplayCache;
+import dev.jaqobb.message_editor.message.cache.MessagePlaceCache;
+import dev.jaqobb.message_editor.message.cache.PlayerComponentCache;
+import dev.jaqobb.message_editor.message.cache.PlayerItemCache;
+import dev.jaqobb.message_editor.message.cache.PlayerScoreboardCache;
+import dev.jaqobb.message_editor.message.history.MessageHistory;
+import dev.jaqobb.message_editor.message.index.MessageEditIndex;
 import dev.jaqobb.message_editor.updater.Updater;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import dev.jaqobb.message_editor.watcher.MessageEditWatcher;
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 import java.io.File;
@@ -42,19 +58,29 @@ import java.io.IOException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
+import java.util.regex.Matcher;
 
 // TODO: Fix disconnect message place (it just does not seem to be working at all?)?
 public class MessageEditorPlugin extends JavaPlugin {
@@ -65,13 +91,28 @@ public class MessageEditorPlugin extends JavaPlugin {
     
     private boolean updateNotify;
     private Updater updater;
-    private List<MessageEdit> messageEdits;
+    // Replaced as a whole whenever message edits change, so packet listeners never see them half-updated.
+    private volatile MessageEditSnapshot messageEditSnapshot = MessageEditSnapshot.EMPTY;
+    private final Object messageEditSnapshotLock = new Object();
+    private long messageEditSnapshotGeneration;
+    private int messageMissCacheSize;
+    private ItemDisplayCache itemDisplayCache;
     private boolean attachSpecialHoverAndClickEvents;
     private boolean placeholderApiPresent;
+    private long placeholderCacheDuration;
+    private boolean resendInventoryItems;
+    private boolean editInventoryItemLoreLines;
+    private boolean skipRedundantScoreboardUpdates;
     private MenuManager menuManager;
-    private Cache<MessageEditInfo, Map.Entry<MessageEdit, String>> cachedMessages;
-    private Cache<String, MessageData> cachedMessagesData;
+    private MessageEditWatcher messageEditWatcher;
+    private MessagePlaceCache<String, EditedMessage> cachedMessages;
+    private MessageHistory messageHistory;
     private Map<UUID, MessageEditData> currentMessageEditsData;
+    private Map<UUID, PlayerPlaceholderCache> placeholderCaches;
+    private Map<UUID, PlayerItemCache> itemCaches;
+    private Map<UUID, PlayerComponentCache<Integer>> entityNameCaches;
+    private Map<UUID, PlayerComponentCache<UUID>> bossBarCaches;
+    private Map<UUID, PlayerScoreboardCache> scoreboardCaches;
     
     @Override
     public void onLoad() {
@@ -92,16 +133,19 @@ public class MessageEditorPlugin extends JavaPlugin {
         this.getLogger().log(Level.INFO, "Loading configuration...");
         this.saveDefaultConfig();
         this.reloadConfig();
+        this.reloadMessageEdits().join();
         PluginManager pluginManager = this.getServer().getPluginManager();
         this.placeholderApiPresent = pluginManager.getPlugin("PlaceholderAPI") != null;
         this.getLogger().log(Level.INFO, "PlaceholderAPI: " + (this.placeholderApiPresent ? "found" : "not found") + ".");
-        this.cachedMessages = CacheBuilder.newBuilder()
-            .expireAfterAccess(15L, TimeUnit.MINUTES)
-            .build();
-        this.cachedMessagesData = CacheBuilder.newBuilder()
-            .expireAfterAccess(15L, TimeUnit.MINUTES)
-            .build();
+        ConfigurationSection cachesSection = this.getConfig().getConfigurationSection("caches");
+        this.cachedMessages = new MessagePlaceCache<>(cachesSection, (String messageBefore, EditedMessage messageAfter) -> MessagePlaceCache.estimateSize(messageBefore) + MessagePlaceCache.estimateSize(messageAfter.getMessage()) + 32);
+        this.messageHistory = new MessageHistory(this.getConfig().getInt("message-history-size", 64));
         this.currentMessageEditsData = new HashMap<>();
+        this.placeholderCaches = new ConcurrentHashMap<>();
+        this.itemCaches = new ConcurrentHashMap<>();
+        this.entityNameCaches = new ConcurrentHashMap<>();
+        this.bossBarCaches = new ConcurrentHashMap<>();
+        this.scoreboardCaches = new ConcurrentHashMap<>();
     }
     
     @Override
@@ -124,8 +168,16 @@ public class MessageEditorPlugin extends JavaPlugin {
         pluginManager.registerEvents(new PlayerInventoryCloseListener(this), this);
         pluginManager.registerEvents(new PlayerInventoryClickListener(this), this);
         pluginManager.registerEvents(new PlayerChatListener(this), this);
+        for (Player player : this.getServer().getOnlinePlayers()) {
+            this.addPlaceholderCache(player.getUniqueId());
+            this.addItemCache(player.getUniqueId());
+            this.addEntityNameCache(player.getUniqueId());
+            this.addBossBarCache(player.getUniqueId());
+            this.addScoreboardCache(player.getUniqueId());
+            this.messageHistory.addPlayer(player.getUniqueId());
+        }
         this.getLogger().log(Level.INFO, "Registering packet listeners...");
-        Map<String, PacketAdapter> packetListeners = new HashMap<>();
+        Map<String, PacketAdapter> packetListeners = new LinkedHashMap<>();
         packetListeners.put("chat", new ChatPacketListener(this));
         packetListeners.put("kick", new KickPacketListener(this));
         packetListeners.put("disconnect", new DisconnectPacketListener(this));
@@ -136,70 +188,259 @@ public class MessageEditorPlugin extends JavaPlugin {
         packetListeners.put("inventory-item", new InventoryItemsPacketListener(this));
         packetListeners.put("entity-name", new EntityNamePacketListener(this));
         ProtocolManager protocolManager = ProtocolLibrary.getProtocolManager();
+        boolean async = this.getConfig().getBoolean("async-packet-listeners.enabled", false);
+        int asyncWorkers = Math.max(this.getConfig().getInt("async-packet-listeners.workers", 2), 1);
+        // Enabled packet listeners are not registered on their own, but through a single packet listener that passes packets to them.
+        List<PacketAdapter> syncPacketListeners = new ArrayList<>();
+        List<PacketAdapter> asyncPacketListeners = new ArrayList<>();
         for (Map.Entry<String, PacketAdapter> packetListener : packetListeners.entrySet()) {
-            if (this.getConfig().getBoolean("packet-listeners." + packetListener.getKey(), true)) {
-                protocolManager.addPacketListener(packetListener.getValue());
+            if (!this.getConfig().getBoolean("packet-listeners." + packetListener.getKey(), true)) {
+                continue;
+            }
+            // ProtocolLib only keeps packets in order among ones processed asynchronously, so packets of other types could overtake them.
+            // Only chat packets do not depend on packets of other types, e.g. entity names on entity spawns or inventory items on inventories being opened.
+            if (async && packetListener.getKey().equals("chat")) {
+                asyncPacketListeners.add(packetListener.getValue());
+            } else {
+                syncPacketListeners.add(packetListener.getValue());
+            }
+        }
+        if (!syncPacketListeners.isEmpty()) {
+            protocolManager.addPacketListener(new MessagePacketListener(this, syncPacketListeners));
+        }
+        if (!asyncPacketListeners.isEmpty()) {
+            // ProtocolLib sends packets processed asynchronously in the same order they were sent in for each player, but only among themselves.
+            protocolManager.getAsynchronousManager().registerAsyncHandler(new MessagePacketListener(this, asyncPacketListeners)).start(asyncWorkers);
+            this.getLogger().log(Level.INFO, "Packets are processed asynchronously with " + asyncWorkers + " workers.");
+        }
+        if (this.getConfig().getBoolean("watch-edits.enabled", false)) {
+            this.getLogger().log(Level.INFO, "Starting edit watcher...");
+            try {
+                this.messageEditWatcher = new MessageEditWatcher(this, new File(this.getDataFolder(), "edits").toPath(), Math.max(this.getConfig().getLong("watch-edits.delay", 500L), 0L));
+                this.messageEditWatcher.start();
+            } catch (IOException exception) {
+                this.getLogger().log(Level.WARNING, "Could not watch 'edits' directory.", exception);
             }
         }
     }
     
-    @SuppressWarnings("unchecked")
+    @Override
+    public void onDisable() {
+        if (this.messageEditWatcher != null) {
+            this.messageEditWatcher.close();
+            this.messageEditWatcher = null;
+        }
+    }
+    
     @Override
     public void reloadConfig() {
         super.reloadConfig();
         this.updateNotify = this.getConfig().getBoolean("update.notify", true);
         this.attachSpecialHoverAndClickEvents = this.getConfig().getBoolean("attach-special-hover-and-click-events", true);
-        this.messageEdits = (List<MessageEdit>) this.getConfig().getList("message-edits");
+        this.messageMissCacheSize = this.getConfig().getInt("message-miss-cache-size", 65536);
+        this.placeholderCacheDuration = TimeUnit.MILLISECONDS.toNanos(this.getConfig().getLong("placeholder-cache-duration", 1000L));
+        this.resendInventoryItems = this.getConfig().getBoolean("resend-inventory-items", false);
+        this.editInventoryItemLoreLines = this.getConfig().getBoolean("edit-inventory-item-lore-lines", false);
+        this.skipRedundantScoreboardUpdates = this.getConfig().getBoolean("skip-redundant-scoreboard-updates", false);
+        this.itemDisplayCache = new ItemDisplayCache(this.getConfig().getLong("item-display-cache-size", 4096L));
+    }
+    
+    // Edit files are parsed and their patterns compiled on worker threads, and new message edits are published all at once when all of them are loaded.
+    // Until then, messages are still edited with the previous message edits. The returned future completes once new message edits are published,
+    // or with a CancellationException if message edits were changed while they were being loaded, in which case they are not published.
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<MessageEditSnapshot> reloadMessageEdits() {
+        // The list read from the configuration is copied, as it is kept by the configuration itself.
+        List<MessageEdit> messageEdits = new ArrayList<>((List<MessageEdit>) this.getConfig().getList("message-edits"));
+        int missCacheSize = this.messageMissCacheSize;
+        long generation;
+        synchronized (this.messageEditSnapshotLock) {
+            this.messageEditSnapshotGeneration += 1;
+            generation = this.messageEditSnapshotGeneration;
+        }
         File editsDirectory = new File(this.getDataFolder(), "edits");
         if (!editsDirectory.exists()) {
             if (!editsDirectory.mkdir()) {
                 this.getLogger().log(Level.WARNING, "Could not create 'edits' directory.");
-                return;
-            }
-            List<String> resources = new ArrayList<>();
-            URL resourceDirectory = this.getClassLoader().getResource("edits");
-            String jarPath = resourceDirectory.getPath().substring(5, resourceDirectory.getPath().indexOf('!'));
-            try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
-                Enumeration<JarEntry> entries = jar.entries();
-                while (entries.hasMoreElements()) {
-                    JarEntry entry = entries.nextElement();
-                    String name = entry.getName();
-                    if (!name.startsWith("edits")) {
-                        continue;
-                    }
-                    String lastCharacter = name.substring(name.length() - 1);
-                    if (lastCharacter.equals(File.separator)) {
-                        continue;
-                    }
-                    String clearName = name.substring("edits".length() + 1);
-                    if (!clearName.endsWith(".yml")) {
-                        continue;
-                    }
-                    if (clearName.substring(0, clearName.length() - 4).isEmpty()) {
-                        continue;
-                    }
-                    resources.add("edits/" + clearName);
+                MessageEditSnapshot snapshot = new MessageEditSnapshot(messageEdits, Collections.emptyMap(), MessageTranslationTable.EMPTY, missCacheSize);
+                if (!this.setMessageEditSnapshot(snapshot, generation)) {
+                    return CompletableFuture.failedFuture(new CancellationException("Message edits were changed while they were being reloaded."));
                 }
-            } catch (IOException exception) {
-                this.getLogger().log(Level.WARNING, "Could not copy default edits.", exception);
-            }
-            for (String resource : resources) {
-                this.saveResource(resource, false);
+                return CompletableFuture.completedFuture(snapshot);
             }
+            this.saveDefaultMessageEdits();
+        }
+        File[] editFiles = editsDirectory.listFiles();
+        if (editFiles == null) {
+            editFiles = new File[0];
         }
-        for (File editFile : editsDirectory.listFiles()) {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(Math.min(editFiles.length, Runtime.getRuntime().availableProcessors()), 1), runnable -> {
+            Thread thread = new Thread(runnable, "Message Editor Edit Loader #" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Message edits are added in the order of their files, as the first matching message edit wins.
+        Map<String, CompletableFuture<MessageEdit>> editFutures = new LinkedHashMap<>();
+        List<File> translationFiles = new ArrayList<>();
+        for (File editFile : editFiles) {
             String name = editFile.getName();
             if (!name.isEmpty() && name.charAt(0) == '#') {
                 continue;
             }
+            if (name.endsWith(MessageTranslationTable.FILE_EXTENSION)) {
+                translationFiles.add(editFile);
+                continue;
+            }
+            if (!name.endsWith(".yml")) {
+                continue;
+            }
+            editFutures.put(name, CompletableFuture.supplyAsync(() -> loadMessageEdit(editFile), executor));
+        }
+        CompletableFuture<MessageTranslationTable> translationTableFuture = CompletableFuture.supplyAsync(() -> MessageTranslationTable.load(translationFiles, this.getLogger()), executor);
+        CompletableFuture<?>[] futures = editFutures.values().toArray(new CompletableFuture<?>[editFutures.size() + 1]);
+        futures[editFutures.size()] = translationTableFuture;
+        CompletableFuture<MessageEditSnapshot> future = CompletableFuture.allOf(futures).thenApplyAsync(ignored -> {
+            Map<String, MessageEdit> fileEdits = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<MessageEdit>> editFuture : editFutures.entrySet()) {
+                fileEdits.put(editFuture.getKey(), editFuture.getValue().join());
+            }
+            MessageTranslationTable translationTable = translationTableFuture.join();
+            MessageEditSnapshot snapshot = new MessageEditSnapshot(messageEdits, fileEdits, translationTable, missCacheSize);
+            if (!this.setMessageEditSnapshot(snapshot, generation)) {
+                throw new CancellationException("Message edits were changed while they were being reloaded.");
+            }
+            if (translationTable.size() > 0) {
+                this.getLogger().log(Level.INFO, "Loaded " + translationTable.size() + " message translations.");
+            }
+            return snapshot;
+        }, executor);
+        future.whenComplete((snapshot, exception) -> executor.shutdown());
+        return future;
+    }
+    
+    // Loads message edits from the given files in the 'edits' directory again and replaces only their message edits.
+    // Only cached messages that were edited with replaced message edits, or that new message edits match, are forgotten.
+    public void updateMessageEdits(Collection<String> fileNames) {
+        File editsDirectory = new File(this.getDataFolder(), "edits");
+        Map<String, MessageEdit> changedEdits = new LinkedHashMap<>();
+        boolean translationsChanged = false;
+        for (String name : fileNames) {
+            if (!name.isEmpty() && name.charAt(0) == '#') {
+                continue;
+            }
+            if (name.endsWith(MessageTranslationTable.FILE_EXTENSION)) {
+                translationsChanged = true;
+                continue;
+            }
             if (!name.endsWith(".yml")) {
                 continue;
             }
-            FileConfiguration configuration = YamlConfiguration.loadConfiguration(editFile);
-            this.messageEdits.add(MessageEdit.deserialize(configuration.getRoot().getValues(false)));
+            File editFile = new File(editsDirectory, name);
+            MessageEdit edit = null;
+            if (editFile.isFile()) {
+                try {
+                    edit = loadMessageEdit(editFile);
+                } catch (RuntimeException exception) {
+                    this.getLogger().log(Level.WARNING, "Could not load message edit from '" + name + "', previous one is still used.", exception);
+                    continue;
+                }
+            }
+            changedEdits.put(name, edit);
+        }
+        // Translations from all files are merged into a single table, so all of them are loaded again.
+        MessageTranslationTable translationTable = null;
+        if (translationsChanged) {
+            List<File> translationFiles = new ArrayList<>();
+            File[] editFiles = editsDirectory.listFiles();
+            if (editFiles != null) {
+                for (File editFile : editFiles) {
+                    String name = editFile.getName();
+                    if (!name.isEmpty() && name.charAt(0) == '#') {
+                        continue;
+                    }
+                    if (name.endsWith(MessageTranslationTable.FILE_EXTENSION)) {
+                        translationFiles.add(editFile);
+                    }
+                }
+            }
+            translationTable = MessageTranslationTable.load(translationFiles, this.getLogger());
+        }
+        if (changedEdits.isEmpty() && translationTable == null) {
+            return;
+        }
+        List<MessageEdit> removedEdits = new ArrayList<>();
+        List<MessageEdit> addedEdits = new ArrayList<>();
+        synchronized (this.messageEditSnapshotLock) {
+            MessageEditSnapshot snapshot = this.messageEditSnapshot;
+            for (Map.Entry<String, MessageEdit> changedEdit : changedEdits.entrySet()) {
+                MessageEdit previousEdit = snapshot.getFileEdits().get(changedEdit.getKey());
+                if (previousEdit != null) {
+                    removedEdits.add(previousEdit);
+                }
+                if (changedEdit.getValue() != null) {
+                    addedEdits.add(changedEdit.getValue());
+                }
+            }
+            snapshot = snapshot.withFileEdits(changedEdits, this.messageMissCacheSize);
+            if (translationTable != null) {
+                snapshot = snapshot.withTranslationTable(translationTable, this.messageMissCacheSize);
+            }
+            this.publishMessageEditSnapshot(snapshot);
+        }
+        if (translationTable != null) {
+            this.cachedMessages.invalidateAll();
+        } else {
+            Set<MessageEdit> removedEditSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            removedEditSet.addAll(removedEdits);
+            MessageEditIndex addedEditIndex = new MessageEditIndex(addedEdits);
+            for (MessagePlace place : MessagePlace.VALUES) {
+                // Translated messages are not affected, as translations are checked before message edits.
+                this.cachedMessages.invalidateIf(place, (messageBefore, messageAfter) -> messageAfter.getEdit() != null && (removedEditSet.contains(messageAfter.getEdit()) || addedEditIndex.findEdit(messageBefore, place) != null));
+            }
+        }
+        this.clearEditedComponentCaches();
+        this.getLogger().log(Level.INFO, "Reloaded changed edit files: " + String.join(", ", fileNames) + ".");
+    }
+    
+    private void saveDefaultMessageEdits() {
+        List<String> resources = new ArrayList<>();
+        URL resourceDirectory = this.getClassLoader().getResource("edits");
+        String jarPath = resourceDirectory.getPath().substring(5, resourceDirectory.getPath().indexOf('!'));
+        try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.startsWith("edits")) {
+                    continue;
+                }
+                String lastCharacter = name.substring(name.length() - 1);
+                if (lastCharacter.equals(File.separator)) {
+                    continue;
+                }
+                String clearName = name.substring("edits".length() + 1);
+                if (!clearName.endsWith(".yml")) {
+                    continue;
+                }
+                if (clearName.substring(0, clearName.length() - 4).isEmpty()) {
+                    continue;
+                }
+                resources.add("edits/" + clearName);
+            }
+        } catch (IOException exception) {
+            this.getLogger().log(Level.WARNING, "Could not copy default edits.", exception);
+        }
+        for (String resource : resources) {
+            this.saveResource(resource, false);
         }
     }
     
+    private static MessageEdit loadMessageEdit(File file) {
+        FileConfiguration configuration = YamlConfiguration.loadConfiguration(file);
+        return MessageEdit.deserialize(configuration.getRoot().getValues(false));
+    }
+    
     public boolean isUpdateNotify() {
         return this.updateNotify;
     }
@@ -208,18 +449,64 @@ public class MessageEditorPlugin extends JavaPlugin {
         return this.updater;
     }
     
+    public MessageEditSnapshot getMessageEditSnapshot() {
+        return this.messageEditSnapshot;
+    }
+    
+    // Returns false if message edits were changed again in the meantime, in which case the snapshot is not published.
+    private boolean setMessageEditSnapshot(MessageEditSnapshot snapshot, long generation) {
+        synchronized (this.messageEditSnapshotLock) {
+            if (generation != this.messageEditSnapshotGeneration) {
+                return false;
+            }
+            this.messageEditSnapshot = snapshot;
+            return true;
+        }
+    }
+    
+    // Returns false if another snapshot was published in the meantime, in which case the snapshot is not published.
+    private boolean replaceMessageEditSnapshot(MessageEditSnapshot expectedSnapshot, MessageEditSnapshot snapshot) {
+        synchronized (this.messageEditSnapshotLock) {
+            if (this.messageEditSnapshot != expectedSnapshot) {
+                return false;
+            }
+            this.messageEditSnapshot = snapshot;
+            return true;
+        }
+    }
+    
+    // Snapshots published while message edits are being reloaded are not overwritten by the reloaded ones. Must be called while holding the lock.
+    private void publishMessageEditSnapshot(MessageEditSnapshot snapshot) {
+        this.messageEditSnapshotGeneration += 1;
+        this.messageEditSnapshot = snapshot;
+    }
+    
     public List<MessageEdit> getMessageEdits() {
-        return Collections.unmodifiableList(this.messageEdits);
+        return this.messageEditSnapshot.getEdits();
     }
     
-    public void addMessageEdit(MessageEdit messageEdit) {
-        this.messageEdits.add(messageEdit);
+    public void addMessageEdit(String fileName, MessageEdit messageEdit) {
+        synchronized (this.messageEditSnapshotLock) {
+            this.publishMessageEditSnapshot(this.messageEditSnapshot.withEdit(fileName, messageEdit, this.messageMissCacheSize));
+        }
     }
     
     public boolean isAttachSpecialHoverAndClickEvents() {
         return this.attachSpecialHoverAndClickEvents;
     }
     
+    public boolean isResendInventoryItems() {
+        return this.resendInventoryItems;
+    }
+    
+    public boolean isEditInventoryItemLoreLines() {
+        return this.editInventoryItemLoreLines;
+    }
+    
+    public boolean isSkipRedundantScoreboardUpdates() {
+        return this.skipRedundantScoreboardUpdates;
+    }
+    
     public boolean isPlaceholderApiPresent() {
         return this.placeholderApiPresent;
     }
@@ -233,43 +520,184 @@ public class MessageEditorPlugin extends JavaPlugin {
     }
     
     public Set<MessageEditInfo> getCachedMessages() {
-        return Collections.unmodifiableSet(this.cachedMessages.asMap().keySet());
+        Set<MessageEditInfo> cachedMessages = new HashSet<>();
+        for (MessagePlace place : MessagePlace.VALUES) {
+            for (String messageBefore : this.cachedMessages.getKeys(place)) {
+                cachedMessages.add(new MessageEditInfo(messageBefore, place));
+            }
+        }
+        return Collections.unmodifiableSet(cachedMessages);
+    }
+    
+    public MessagePlaceCache<String, EditedMessage> getMessageCache() {
+        return this.cachedMessages;
     }
     
-    public Map.Entry<MessageEdit, String> getCachedMessage(String messageBefore, MessagePlace messagePlace) {
-        return this.cachedMessages.getIfPresent(new MessageEditInfo(messageBefore, messagePlace));
+    public EditedMessage getCachedMessage(String messageBefore, MessagePlace messagePlace) {
+        return this.cachedMessages.get(messagePlace, messageBefore);
     }
     
-    public void cacheMessage(String messageBefore, MessagePlace messagePlace, MessageEdit edit, String messageAfter) {
-        this.cachedMessages.put(new MessageEditInfo(messageBefore, messagePlace), new AbstractMap.SimpleEntry<>(edit, messageAfter));
+    public void cacheMessage(String messageBefore, MessagePlace messagePlace, EditedMessage messageAfter) {
+        this.cachedMessages.put(messagePlace, messageBefore, messageAfter);
     }
     
     public void uncacheMessage(String messageBefore, MessagePlace messagePlace) {
-        this.cachedMessages.invalidate(new MessageEditInfo(messageBefore, messagePlace));
+        this.cachedMessages.invalidate(messagePlace, messageBefore);
     }
     
     public void clearCachedMessages() {
         this.cachedMessages.invalidateAll();
+        // Only the miss cache of the current snapshot is replaced, so message edits being reloaded are still published afterwards.
+        MessageEditSnapshot snapshot;
+        do {
+            snapshot = this.messageEditSnapshot;
+        } while (!this.replaceMessageEditSnapshot(snapshot, snapshot.withMissCache(this.messageMissCacheSize)));
+        this.clearEditedComponentCaches();
+    }
+    
+    // Edited item displays and packet components are kept by what was sent instead of by messages, so all of them are forgotten whenever message edits change.
+    private void clearEditedComponentCaches() {
+        this.itemDisplayCache.invalidateAll();
+        for (PlayerPlaceholderCache placeholderCache : this.placeholderCaches.values()) {
+            placeholderCache.clear();
+        }
+        for (PlayerItemCache itemCache : this.itemCaches.values()) {
+            itemCache.clear();
+        }
+        for (PlayerComponentCache<Integer> entityNameCache : this.entityNameCaches.values()) {
+            entityNameCache.clear();
+        }
+        for (PlayerComponentCache<UUID> bossBarCache : this.bossBarCaches.values()) {
+            bossBarCache.clear();
+        }
+    }
+    
+    // Translation tables are checked before message edits. Returns null if the message is not edited.
+    public EditedMessage editMessage(Player player, String message, MessagePlace place) {
+        EditedMessage cachedMessage = this.getCachedMessage(message, place);
+        if (cachedMessage != null) {
+            return this.setPlaceholders(player, cachedMessage);
+        }
+        // The snapshot is read once, so the message is matched against a single set of edits even if they are changed meanwhile.
+        MessageEditSnapshot snapshot = this.messageEditSnapshot;
+        MessageMissCache missCache = snapshot.getMissCache();
+        long fingerprint = 0L;
+        if (missCache.isEnabled()) {
+            fingerprint = MessageMissCache.fingerprint(message, place);
+            if (missCache.contains(fingerprint)) {
+                return null;
+            }
+        }
+        MessageEdit edit = null;
+        String newMessage = snapshot.getTranslationTable().translate(message, place);
+        if (newMessage == null) {
+            Map.Entry<MessageEdit, Matcher> matchingEdit = snapshot.getIndex().findEdit(message, place);
+            if (matchingEdit == null) {
+                if (missCache.isEnabled()) {
+                    missCache.add(fingerprint);
+                }
+                return null;
+            }
+            edit = matchingEdit.getKey();
+            newMessage = MessageUtils.translate(matchingEdit.getValue().replaceAll(edit.getMessageAfter()));
+        }
+        // Messages are cached before placeholders are set, so they can be shared between players.
+        EditedMessage editedMessage = new EditedMessage(edit, newMessage, MessageUtils.isJson(newMessage), MessageUtils.containsPlaceholders(newMessage));
+        this.cacheMessage(message, place, editedMessage);
+        // Cached messages are forgotten after new message edits are published, so a message edited with previous ones could be cached after that.
+        // It is then forgotten here instead. Either this check or the publishing thread sees the cached message, as both read and write the snapshot.
+        if (this.messageEditSnapshot != snapshot) {
+            this.cachedMessages.invalidate(place, message, editedMessage);
+        }
+        return this.setPlaceholders(player, editedMessage);
+    }
+    
+    private EditedMessage setPlaceholders(Player player, EditedMessage message) {
+        if (!message.hasPlaceholders() || !this.placeholderApiPresent) {
+            return message;
+        }
+        PlayerPlaceholderCache placeholderCache = this.placeholderCacheDuration > 0L ? this.placeholderCaches.get(player.getUniqueId()) : null;
+        long now = System.nanoTime();
+        if (placeholderCache != null) {
+            EditedMessage cachedMessage = placeholderCache.get(message, now);
+            if (cachedMessage != null) {
+                return cachedMessage;
+            }
+        }
+        String newMessage = PlaceholderAPI.setPlaceholders(player, message.getMessage());
+        EditedMessage editedMessage = new EditedMessage(message.getEdit(), newMessage, MessageUtils.isJson(newMessage), false, true);
+        if (placeholderCache != null) {
+            placeholderCache.put(message, editedMessage, now + this.placeholderCacheDuration);
+        }
+        return editedMessage;
+    }
+    
+    public ItemDisplayCache getItemDisplayCache() {
+        return this.itemDisplayCache;
+    }
+    
+    public void addPlaceholderCache(UUID uuid) {
+        this.placeholderCaches.put(uuid, new PlayerPlaceholderCache());
+    }
+    
+    public void removePlaceholderCache(UUID uuid) {
+        this.placeholderCaches.remove(uuid);
+    }
+    
+    public PlayerItemCache getItemCache(UUID uuid) {
+        return this.itemCaches.get(uuid);
+    }
+    
+    public void addItemCache(UUID uuid) {
+        this.itemCaches.put(uuid, new PlayerItemCache());
+    }
+    
+    public void removeItemCache(UUID uuid) {
+        this.itemCaches.remove(uuid);
+    }
+    
+    public PlayerComponentCache<Integer> getEntityNameCache(UUID uuid) {
+        return this.entityNameCaches.get(uuid);
+    }
+    
+    public void addEntityNameCache(UUID uuid) {
+        this.entityNameCaches.put(uuid, new PlayerComponentCache<>());
+    }
+    
+    public void removeEntityNameCache(UUID uuid) {
+        this.entityNameCaches.remove(uuid);
+    }
+    
+    public PlayerComponentCache<UUID> getBossBarCache(UUID uuid) {
+        return this.bossBarCaches.get(uuid);
+    }
+    
+    public void addBossBarCache(UUID uuid) {
+        this.bossBarCaches.put(uuid, new PlayerComponentCache<>());
+    }
+    
+    public void removeBossBarCache(UUID uuid) {
+        this.bossBarCaches.remove(uuid);
     }
     
-    public Set<String> getCachedMessagesData() {
-        return Collections.unmodifiableSet(this.cachedMessagesData.asMap().keySet());
+    public PlayerScoreboardCache getScoreboardCache(UUID uuid) {
+        return this.scoreboardCaches.get(uuid);
     }
     
-    public MessageData getCachedMessageData(String id) {
-        return this.cachedMessagesData.getIfPresent(id);
+    public void addScoreboardCache(UUID uuid) {
+        this.scoreboardCaches.put(uuid, new PlayerScoreboardCache());
     }
     
-    public void cacheMessageData(String id, MessageData data) {
-        this.cachedMessagesData.put(id, data);
+    public void removeScoreboardCache(UUID uuid) {
+        this.scoreboardCaches.remove(uuid);
     }
     
-    public void uncacheMessageData(String id) {
-        this.cachedMessagesData.invalidate(id);
+    public MessageHistory getMessageHistory() {
+        return this.messageHistory;
     }
     
-    public void clearCachedMessagesData() {
-        this.cachedMessagesData.invalidateAll();
+    public MessageData getMessageData(String id) {
+        return this.messageHistory.findMessage(id);
     }
     
     public Map<UUID, MessageEditData> getCurrentMessageEditsData() {
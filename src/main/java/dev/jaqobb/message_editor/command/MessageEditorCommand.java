@@ -1,7 +1,7 @@
 package dev.jaqobb.message_editor.command;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
-import dev.jaqobb.message_editor.message.MessageData;
 import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.util.MessageUtils;
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 
 public class MessageEditorCommand implements CommandExecutor {
@@ -45,7 +47,6 @@ public class MessageEditorCommand implements CommandExecutor {
                 MessageUtils.sendPrefixedMessage(sender, "&7Correct usage: &e/" + label + " reload&7.");
                 return true;
             }
-            this.plugin.clearCachedMessages();
             this.plugin.clearCurrentMessageEditsData();
             this.plugin.reloadConfig();
             for (Player player : Bukkit.getOnlinePlayers()) {
@@ -55,7 +56,23 @@ public class MessageEditorCommand implements CommandExecutor {
                     MessageUtils.sendPrefixedMessage(player, "&7Your message editor menu has been closed due to the plugin reload.");
                 }
             }
-            MessageUtils.sendPrefixedMessage(sender, "&7Plugin has been reloaded.");
+            MessageUtils.sendPrefixedMessage(sender, "&7Reloading message edits...");
+            // Cached messages are only cleared once new message edits are published, until then they are still edited with the previous ones.
+            this.plugin.reloadMessageEdits().whenComplete((snapshot, exception) -> this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+                // Reloaded message edits are not published if message edits were changed in the meantime, e.g. by another reload.
+                Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                if (cause instanceof CancellationException) {
+                    MessageUtils.sendPrefixedMessage(sender, "&cMessage edits were changed while they were being reloaded, so they were not reloaded. Try again.");
+                    return;
+                }
+                if (exception != null) {
+                    this.plugin.getLogger().log(Level.WARNING, "Could not reload message edits.", exception);
+                    MessageUtils.sendPrefixedMessage(sender, "&cCould not reload message edits, previous ones are still used. Check the console for details.");
+                    return;
+                }
+                this.plugin.clearCachedMessages();
+                MessageUtils.sendPrefixedMessage(sender, "&7Plugin has been reloaded.");
+            }));
             return true;
         }
         if (arguments[0].equalsIgnoreCase("edit")) {
@@ -68,12 +85,9 @@ public class MessageEditorCommand implements CommandExecutor {
                 MessageUtils.sendPrefixedMessage(player, "&7Correct usage: &e/" + label + " edit &6<message id>&7.");
                 return true;
             }
-            MessageData data = this.plugin.getCachedMessageData(arguments[1]);
-            if (data == null) {
+            if (!this.plugin.getMenuManager().openMenu(player, arguments[1], true)) {
                 MessageUtils.sendPrefixedMessage(player, "&cThere is no cached message data attached to the '&7" + arguments[1] + "&c' message id.");
-                return true;
             }
-            this.plugin.getMenuManager().openMenu(player, data, true);
             return true;
         }
         if (arguments[0].equalsIgnoreCase("activate")) {
@@ -137,6 +151,20 @@ public class MessageEditorCommand implements CommandExecutor {
             MessageUtils.sendMessage(sender, "&7You have deactivated analyzing all message places.");
             return true;
         }
+        if (arguments[0].equalsIgnoreCase("stats")) {
+            if (arguments.length != 1) {
+                MessageUtils.sendPrefixedMessage(sender, "&7Correct usage: &e/" + label + " stats&7.");
+                return true;
+            }
+            MessageUtils.sendPrefixedMessage(sender, "&7Cache statistics:");
+            for (MessagePlace place : MessagePlace.VALUES) {
+                if (!place.isSupported()) {
+                    continue;
+                }
+                this.sendCacheStats(sender, place.getFriendlyName(), this.plugin.getMessageCache().getSize(place), this.plugin.getMessageCache().getStats(place));
+            }
+            return true;
+        }
         if (arguments[0].equalsIgnoreCase("migrate")) {
             if (arguments.length != 1) {
                 MessageUtils.sendPrefixedMessage(sender, "&7Correct usage: &e/" + label + " migrate&7.");
@@ -189,10 +217,15 @@ public class MessageEditorCommand implements CommandExecutor {
         MessageUtils.sendMessage(target, " &8- &eactivate &6<message places> &7- Activates analyzing message places.");
         MessageUtils.sendMessage(target, " &8- &edeactivate &6<message places> &7- Dectivates analyzing message places.");
         MessageUtils.sendMessage(target, " &8- &edeactivate-all &7- Deactivates analyzing all message places.");
+        MessageUtils.sendMessage(target, " &8- &estats &7- Shows message cache statistics.");
         MessageUtils.sendMessage(target, " &8- &emigrate &7- Migrates old message edits to the new per-file system.");
         this.sendAvailableMessagePlaces(target);
     }
     
+    private void sendCacheStats(CommandSender target, String name, long size, CacheStats stats) {
+        MessageUtils.sendMessage(target, " &8- &e" + name + "&7: &e" + size + " &7entries, &e" + stats.hitCount() + " &7hits, &e" + stats.missCount() + " &7misses, &e" + stats.evictionCount() + " &7evictions (&e" + String.format("%.1f", stats.hitRate() * 100.0D) + "% &7hit rate).");
+    }
+    
     private void sendAvailableMessagePlaces(CommandSender target) {
         MessageUtils.sendPrefixedMessage(target, "&7Available message places:");
         for (MessagePlace place : MessagePlace.VALUES) {
@@ -12,7 +12,7 @@ import java.util.List;
 
 public class MessageEditorCommandTabCompleter implements TabCompleter {
     
-    private static final Collection<String> POSSIBLE_ARGUMENTS = Arrays.asList("reload", "edit", "activate", "deactivate", "deactivate-all", "deactivateall", "migrate");
+    private static final Collection<String> POSSIBLE_ARGUMENTS = Arrays.asList("reload", "edit", "activate", "deactivate", "deactivate-all", "deactivateall", "stats", "migrate");
     
     @Override
     public List<String> onTabComplete(CommandSender sender, @NotNull Command command, @NotNull String label, String[] arguments) {
@@ -1,10 +1,16 @@
 package dev.jaqobb.message_editor.listener.packet;
 
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.reflect.StructureModifier;
 import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditedMessage;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.message.bossbar.BossBarAction;
+import dev.jaqobb.message_editor.message.cache.PlayerComponentCache;
+import java.util.UUID;
 
 public class BossBarPacketListener extends CommonPacketListener {
     
@@ -21,4 +27,59 @@ public class BossBarPacketListener extends CommonPacketListener {
         // Chat component being present means it is either a packet for adding a boss bar or one for updating its name.
         return packet.getStructures().readSafely(1).getChatComponents().size() == 1;
     }
+    
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        UUID barId = event.getPacket().getUUIDs().readSafely(0);
+        // Analyzed titles are always edited again, so they are logged each time they are sent.
+        PlayerComponentCache<UUID> titleCache = MessagePlace.BOSS_BAR.isAnalyzing() ? null : this.getPlugin().getBossBarCache(event.getPlayer().getUniqueId());
+        if (titleCache == null) {
+            super.onPacketSending(event);
+            return;
+        }
+        if (isRemove(event.getPacket())) {
+            titleCache.remove(barId);
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        if (!this.shouldProcess(packet)) {
+            return;
+        }
+        Object title = getTitles(packet).readSafely(0).getHandle();
+        Object newTitle = titleCache.get(barId, title);
+        if (newTitle == null) {
+            EditedMessage editedMessage = this.editMessage(event, packet, WrappedChatComponent.fromHandle(title).getJson());
+            newTitle = editedMessage == null ? title : editedMessage.getOutput().getChatComponent().getHandle();
+            // Titles with placeholders set are not cached, as placeholder values may change.
+            if (editedMessage != null && editedMessage.isPersonal()) {
+                titleCache.remove(barId);
+            } else {
+                titleCache.put(barId, title, newTitle);
+            }
+        }
+        if (newTitle == title) {
+            return;
+        }
+        packet = packet.shallowClone();
+        getTitles(packet).write(0, WrappedChatComponent.fromHandle(newTitle));
+        event.setPacket(packet);
+    }
+    
+    private static StructureModifier<WrappedChatComponent> getTitles(PacketContainer packet) {
+        if (!MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
+            return packet.getChatComponents();
+        }
+        return packet.getStructures().readSafely(1).getChatComponents();
+    }
+    
+    // Operation for removing boss bars is the only one without any values since 1.17.
+    private static boolean isRemove(PacketContainer packet) {
+        if (!MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
+            return packet.getEnumModifier(BossBarAction.class, 1).readSafely(0) == BossBarAction.REMOVE;
+        }
+        return packet.getStructures().readSafely(1).getModifier().size() == 0;
+    }
 }
@@ -7,19 +7,17 @@ import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditedMessage;
 import dev.jaqobb.message_editor.message.MessageData;
-import dev.jaqobb.message_editor.message.MessageEdit;
+import dev.jaqobb.message_editor.message.MessageOutput;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.chat.ComponentSerializer;
 import org.bukkit.entity.Player;
-import java.util.Map;
-import java.util.regex.Matcher;
 
 public class ChatPacketListener extends PacketAdapter {
     
@@ -38,7 +36,7 @@ public class ChatPacketListener extends PacketAdapter {
         if (event.isCancelled()) {
             return;
         }
-        PacketContainer packet = event.getPacket().shallowClone();
+        PacketContainer packet = event.getPacket();
         if (packet.getType() == PacketType.Play.Server.CHAT && MinecraftVersion.WILD_UPDATE.atOrAbove()) {
             return;
         }
@@ -50,70 +48,38 @@ public class ChatPacketListener extends PacketAdapter {
         if (message == null) {
             return;
         }
-        Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message, originalPlace);
-        MessageEdit messageEdit = null;
-        Matcher messageEditMatcher = null;
-        if (cachedMessage == null) {
-            for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                MessagePlace beforePlace = edit.getMessageBeforePlace();
-                if (beforePlace == MessagePlace.GAME_CHAT && MinecraftVersion.WILD_UPDATE.atOrAbove()) {
-                    beforePlace = MessagePlace.SYSTEM_CHAT;
-                }
-                if (beforePlace != null && beforePlace != place) {
-                    continue;
-                }
-                Matcher matcher = edit.getMatcher(message);
-                if (matcher == null) {
-                    continue;
+        EditedMessage editedMessage = this.getPlugin().editMessage(player, message, originalPlace);
+        if (editedMessage != null) {
+            String newMessage = editedMessage.getMessage();
+            if (newMessage.isEmpty()) {
+                event.setCancelled(true);
+                return;
+            }
+            MessagePlace afterPlace = editedMessage.getMessageAfterPlace();
+            if (afterPlace == MessagePlace.GAME_CHAT || afterPlace == MessagePlace.SYSTEM_CHAT || afterPlace == MessagePlace.ACTION_BAR) {
+                place = afterPlace;
+                if (place == MessagePlace.GAME_CHAT && packet.getType() == PacketType.Play.Server.SYSTEM_CHAT) {
+                    place = MessagePlace.SYSTEM_CHAT;
                 }
-                messageEdit = edit;
-                messageEditMatcher = matcher;
-                break;
             }
+            message = newMessage;
         }
-        if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-            if (cachedMessage != null) {
-                String value = cachedMessage.getValue();
-                if (value.isEmpty()) {
-                    event.setCancelled(true);
-                    return;
-                }
-                MessagePlace newPlace = cachedMessage.getKey().getMessageAfterPlace();
-                if (newPlace == MessagePlace.GAME_CHAT || newPlace == MessagePlace.SYSTEM_CHAT || newPlace == MessagePlace.ACTION_BAR) {
-                    place = newPlace;
-                    if (place == MessagePlace.GAME_CHAT && packet.getType() == PacketType.Play.Server.SYSTEM_CHAT) {
-                        place = MessagePlace.SYSTEM_CHAT;
-                    }
-                }
-                message = value;
-            } else {
-                String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                newMessage = MessageUtils.translate(newMessage);
-                if (this.getPlugin().isPlaceholderApiPresent()) {
-                    newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                }
-                this.getPlugin().cacheMessage(message, originalPlace, messageEdit, newMessage);
-                if (newMessage.isEmpty()) {
-                    event.setCancelled(true);
-                    return;
-                }
-                MessagePlace afterPlace = messageEdit.getMessageAfterPlace();
-                if (afterPlace == MessagePlace.GAME_CHAT || afterPlace == MessagePlace.SYSTEM_CHAT || afterPlace == MessagePlace.ACTION_BAR) {
-                    place = afterPlace;
-                    if (place == MessagePlace.GAME_CHAT && packet.getType() == PacketType.Play.Server.SYSTEM_CHAT) {
-                        place = MessagePlace.SYSTEM_CHAT;
-                    }
-                }
-                message = newMessage;
+        boolean json = editedMessage != null ? editedMessage.isJson() : originalPlace.isMessageJson(packet, message);
+        // Cached edited messages come with their packet objects already built, messages with special events attached do not.
+        MessageOutput output = editedMessage != null ? editedMessage.getOutput() : null;
+        boolean attachSpecialHoverAndClickEvents = this.getPlugin().isAttachSpecialHoverAndClickEvents() && player.hasPermission("messageeditor.use");
+        // Message data is only needed by the edit command, which is run either from the analyzing logs or from the special click event.
+        String id = null;
+        if (place.isAnalyzing() || attachSpecialHoverAndClickEvents) {
+            MessageData data = this.getPlugin().getMessageHistory().addMessage(player.getUniqueId(), place, message, json);
+            if (data != null) {
+                id = data.getId();
             }
         }
-        boolean json = MessageUtils.isJson(message);
-        String id = MessageUtils.generateId(place);
-        this.getPlugin().cacheMessageData(id, new MessageData(id, place, message, json));
         if (place.isAnalyzing()) {
             MessageUtils.logMessage(this.getPlugin().getLogger(), place, player, id, json, message);
         }
-        if (this.getPlugin().isAttachSpecialHoverAndClickEvents() && player.hasPermission("messageeditor.use")) {
+        if (attachSpecialHoverAndClickEvents && id != null) {
             BaseComponent[] messageComponents;
             if (json) {
                 messageComponents = ComponentSerializer.parse(message);
@@ -126,7 +92,12 @@ public class ChatPacketListener extends PacketAdapter {
             }
             message = MessageUtils.toJson(messageComponents, false);
             json = true;
+            output = new MessageOutput(message, true);
         }
+        if (message.equals(originalMessage) && place == originalPlace) {
+            return;
+        }
+        packet = packet.shallowClone();
         if (place != originalPlace) {
             if (packet.getType() == PacketType.Play.Server.CHAT) {
                 if (packet.getBytes().size() == 1) {
@@ -138,11 +109,9 @@ public class ChatPacketListener extends PacketAdapter {
                 packet.getBooleans().write(0, place == MessagePlace.ACTION_BAR);
             }
         }
-        if (!message.equals(originalMessage)) {
-            place.setMessage(packet, message, json);
-        }
-        if (!message.equals(originalMessage) || place != originalPlace) {
-            event.setPacket(packet);
+        if (output != null && !message.equals(originalMessage)) {
+            place.setMessage(packet, output);
         }
+        event.setPacket(packet);
     }
 }
@@ -1,25 +1,29 @@
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditedMessage;
 import dev.jaqobb.message_editor.message.MessageData;
-import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.entity.Player;
-import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.Collection;
 
 public class CommonPacketListener extends PacketAdapter {
     
     private final MessagePlace messagePlace;
     
     public CommonPacketListener(MessageEditorPlugin plugin, MessagePlace messagePlace) {
-        super(plugin, ListenerPriority.HIGHEST, messagePlace.getPacketTypes());
+        this(plugin, messagePlace, messagePlace.getPacketTypes());
+    }
+    
+    // Packet types may include ones that do not contain messages, but still have to be listened to.
+    public CommonPacketListener(MessageEditorPlugin plugin, MessagePlace messagePlace, Collection<PacketType> packetTypes) {
+        super(plugin, ListenerPriority.HIGHEST, packetTypes);
         this.messagePlace = messagePlace;
     }
     
@@ -37,56 +41,43 @@ public class CommonPacketListener extends PacketAdapter {
         if (event.isCancelled()) {
             return;
         }
-        PacketContainer packet = event.getPacket().shallowClone();
+        if (!this.messagePlace.hasMessage(event.getPacket())) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
         if (!this.shouldProcess(packet)) {
             return;
         }
-        Player player = event.getPlayer();
-        String originalMessage = this.messagePlace.getMessage(packet);
-        String message = originalMessage;
+        String message = this.messagePlace.getMessage(packet);
         if (message == null) {
             return;
         }
-        Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message, this.messagePlace);
-        MessageEdit messageEdit = null;
-        Matcher messageEditMatcher = null;
-        if (cachedMessage == null) {
-            for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                MessagePlace place = edit.getMessageBeforePlace();
-                if (place != null && place != this.messagePlace) {
-                    continue;
-                }
-                Matcher matcher = edit.getMatcher(message);
-                if (matcher == null) {
-                    continue;
-                }
-                messageEdit = edit;
-                messageEditMatcher = matcher;
-                break;
-            }
+        EditedMessage editedMessage = this.editMessage(event, packet, message);
+        if (editedMessage != null) {
+            // Packets are only cloned once they are written to, as most of them are not edited.
+            packet = packet.shallowClone();
+            this.messagePlace.setMessage(packet, editedMessage.getOutput());
+            event.setPacket(packet);
         }
-        if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-            if (cachedMessage != null) {
-                message = cachedMessage.getValue();
-            } else {
-                String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                newMessage = MessageUtils.translate(newMessage);
-                if (this.getPlugin().isPlaceholderApiPresent()) {
-                    newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                }
-                this.getPlugin().cacheMessage(message, this.messagePlace, messageEdit, newMessage);
-                message = newMessage;
-            }
+    }
+    
+    // Edits and analyzes the message. Returns null if the message does not change.
+    protected EditedMessage editMessage(PacketEvent event, PacketContainer packet, String originalMessage) {
+        Player player = event.getPlayer();
+        String message = originalMessage;
+        EditedMessage editedMessage = this.getPlugin().editMessage(player, message, this.messagePlace);
+        if (editedMessage != null) {
+            message = editedMessage.getMessage();
         }
-        boolean json = MessageUtils.isJson(message);
-        String id = MessageUtils.generateId(this.messagePlace);
-        this.getPlugin().cacheMessageData(id, new MessageData(id, this.messagePlace, message, json));
+        boolean json = editedMessage != null ? editedMessage.isJson() : this.messagePlace.isMessageJson(packet, message);
         if (this.messagePlace.isAnalyzing()) {
-            MessageUtils.logMessage(this.getPlugin().getLogger(), this.messagePlace, player, id, json, message);
+            // Players that are still logging in have no message history.
+            MessageData data = event.isPlayerTemporary() ? null : this.getPlugin().getMessageHistory().addMessage(player.getUniqueId(), this.messagePlace, message, json);
+            MessageUtils.logMessage(this.getPlugin().getLogger(), this.messagePlace, player, data == null ? null : data.getId(), json, message);
         }
-        if (!message.equals(originalMessage)) {
-            this.messagePlace.setMessage(packet, message, json);
-            event.setPacket(packet);
+        if (message.equals(originalMessage)) {
+            return null;
         }
+        return editedMessage;
     }
 }
@@ -1,11 +1,89 @@
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditedMessage;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.message.cache.PlayerComponentCache;
+import dev.jaqobb.message_editor.util.EntityDataUtils;
+import java.util.Arrays;
+import java.util.List;
 
 public class EntityNamePacketListener extends CommonPacketListener {
     
     public EntityNamePacketListener(MessageEditorPlugin plugin) {
-        super(plugin, MessagePlace.ENTITY_NAME);
+        super(plugin, MessagePlace.ENTITY_NAME, Arrays.asList(PacketType.Play.Server.ENTITY_METADATA, PacketType.Play.Server.ENTITY_DESTROY, PacketType.Play.Server.RESPAWN));
+    }
+    
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        if (event.getPacketType() == PacketType.Play.Server.ENTITY_DESTROY) {
+            this.onEntityDestroySending(event);
+            return;
+        }
+        // Clients forget all entities when they respawn or change worlds, without them being destroyed one by one.
+        if (event.getPacketType() == PacketType.Play.Server.RESPAWN) {
+            PlayerComponentCache<Integer> nameCache = this.getPlugin().getEntityNameCache(event.getPlayer().getUniqueId());
+            if (nameCache != null) {
+                nameCache.clear();
+            }
+            return;
+        }
+        if (!MessagePlace.ENTITY_NAME.hasMessage(event.getPacket())) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        Object name = EntityDataUtils.getCustomName(packet);
+        if (name == null) {
+            return;
+        }
+        int entityId = packet.getIntegers().read(0);
+        // Analyzed names are always edited again, so they are logged each time they are sent.
+        PlayerComponentCache<Integer> nameCache = MessagePlace.ENTITY_NAME.isAnalyzing() ? null : this.getPlugin().getEntityNameCache(event.getPlayer().getUniqueId());
+        Object newName = nameCache == null ? null : nameCache.get(entityId, name);
+        if (newName == null) {
+            EditedMessage editedMessage = this.editMessage(event, packet, WrappedChatComponent.fromHandle(name).getJson());
+            newName = editedMessage == null ? name : editedMessage.getOutput().getChatComponent().getHandle();
+            // Names with placeholders set are not cached, as placeholder values may change.
+            if (nameCache != null && editedMessage != null && editedMessage.isPersonal()) {
+                nameCache.remove(entityId);
+            } else if (nameCache != null) {
+                nameCache.put(entityId, name, newName);
+            }
+        }
+        if (newName == name) {
+            return;
+        }
+        packet = packet.shallowClone();
+        EntityDataUtils.setCustomName(packet, newName);
+        event.setPacket(packet);
+    }
+    
+    private void onEntityDestroySending(PacketEvent event) {
+        PlayerComponentCache<Integer> nameCache = this.getPlugin().getEntityNameCache(event.getPlayer().getUniqueId());
+        if (nameCache == null) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        // Entity ids are sent as a list since 1.17.1, as a single id in 1.17 and as an array before.
+        if (packet.getIntLists().size() > 0) {
+            List<Integer> entityIds = packet.getIntLists().read(0);
+            for (int entityId : entityIds) {
+                nameCache.remove(entityId);
+            }
+        } else if (packet.getIntegerArrays().size() > 0) {
+            int[] entityIds = packet.getIntegerArrays().read(0);
+            for (int entityId : entityIds) {
+                nameCache.remove(entityId);
+            }
+        } else {
+            nameCache.remove(packet.getIntegers().read(0));
+        }
     }
 }
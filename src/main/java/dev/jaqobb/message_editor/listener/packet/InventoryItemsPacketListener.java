@@ -6,24 +6,37 @@ import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.reflect.StructureModifier;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditedMessage;
+import dev.jaqobb.message_editor.message.ItemDisplay;
 import dev.jaqobb.message_editor.message.MessageData;
-import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.message.cache.ItemDisplayCache;
+import dev.jaqobb.message_editor.message.cache.PlayerItemCache;
+import dev.jaqobb.message_editor.util.ItemComponents;
+import dev.jaqobb.message_editor.util.ItemTags;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import me.clip.placeholderapi.PlaceholderAPI;
-import net.md_5.bungee.api.chat.BaseComponent;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 public class InventoryItemsPacketListener extends PacketAdapter {
     
+    // Latest packets waiting to be resent, by player and window id.
+    private final Map<Map.Entry<UUID, Integer>, PacketContainer> pendingResends;
+    
     public InventoryItemsPacketListener(MessageEditorPlugin plugin) {
-        super(plugin, ListenerPriority.HIGHEST, PacketType.Play.Server.WINDOW_ITEMS);
+        super(plugin, ListenerPriority.HIGHEST, PacketType.Play.Server.WINDOW_ITEMS, PacketType.Play.Server.SET_SLOT);
+        this.pendingResends = new ConcurrentHashMap<>();
     }
     
     @Override
@@ -36,132 +49,280 @@ public class InventoryItemsPacketListener extends PacketAdapter {
         if (event.isCancelled()) {
             return;
         }
+        if (event.getPacketType() == PacketType.Play.Server.SET_SLOT) {
+            this.onSetSlotSending(event);
+        } else {
+            this.onWindowItemsSending(event);
+        }
+    }
+    
+    private void onWindowItemsSending(PacketEvent event) {
         Player player = event.getPlayer();
-        PacketContainer packet = event.getPacket().shallowClone();
-        Iterable<ItemStack> items;
-        if (packet.getItemArrayModifier().size() == 1) {
+        PacketContainer packet = event.getPacket();
+        boolean array = packet.getItemArrayModifier().size() == 1;
+        List<ItemStack> items;
+        if (array) {
             items = Arrays.asList(packet.getItemArrayModifier().readSafely(0));
         } else {
             items = packet.getItemListModifier().readSafely(0);
         }
-        boolean update = false;
-        for (ItemStack item : items) {
-            if (item == null) {
+        if (items == null) {
+            return;
+        }
+        int windowId = packet.getIntegers().read(0);
+        PlayerItemCache itemCache = this.getPlugin().getItemCache(player.getUniqueId());
+        if (itemCache != null) {
+            itemCache.putWindow(windowId, items.size());
+        }
+        // Items are only copied once the first one of them is edited.
+        List<ItemStack> newItems = null;
+        for (int index = 0; index < items.size(); index += 1) {
+            ItemStack newItem = this.editItem(player, itemCache, windowId, index, items.get(index));
+            if (newItem == null) {
                 continue;
             }
-            if (!item.hasItemMeta()) {
-                continue;
+            if (newItems == null) {
+                newItems = new ArrayList<>(items);
             }
-            ItemMeta itemMeta = item.getItemMeta();
-            if (itemMeta.hasDisplayName()) {
-                String originalMessage = itemMeta.getDisplayName();
-                String message = originalMessage;
-                Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message, MessagePlace.INVENTORY_ITEM_NAME);
-                MessageEdit messageEdit = null;
-                Matcher messageEditMatcher = null;
-                if (cachedMessage == null) {
-                    for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                        MessagePlace place = edit.getMessageBeforePlace();
-                        if (place != null && place != MessagePlace.INVENTORY_ITEM_NAME) {
-                            continue;
-                        }
-                        Matcher matcher = edit.getMatcher(message);
-                        if (matcher == null) {
-                            continue;
-                        }
-                        messageEdit = edit;
-                        messageEditMatcher = matcher;
-                        break;
-                    }
+            newItems.set(index, newItem);
+        }
+        if (newItems == null) {
+            return;
+        }
+        // Edited items are written to the cloned packet, so they are sent right away instead of in a second packet.
+        packet = packet.shallowClone();
+        if (array) {
+            packet.getItemArrayModifier().write(0, newItems.toArray(new ItemStack[0]));
+        } else {
+            packet.getItemListModifier().write(0, newItems);
+        }
+        event.setPacket(packet);
+        if (this.getPlugin().isResendInventoryItems()) {
+            this.resend(player, packet);
+        }
+    }
+    
+    // Only the changed item is edited, other items of the window stay as they were sent.
+    private void onSetSlotSending(PacketEvent event) {
+        Player player = event.getPlayer();
+        PacketContainer packet = event.getPacket();
+        StructureModifier<Integer> integers = packet.getIntegers();
+        int windowId = integers.read(0);
+        // Newer versions send the state id between the window id and the slot.
+        int slot = integers.read(integers.size() - 1);
+        // Resending items of the window would overwrite this slot with an older item, and an older state id.
+        if (this.getPlugin().isResendInventoryItems()) {
+            this.pendingResends.remove(new AbstractMap.SimpleImmutableEntry<>(player.getUniqueId(), windowId));
+        }
+        PlayerItemCache itemCache = this.getPlugin().getItemCache(player.getUniqueId());
+        ItemStack newItem = this.editItem(player, itemCache, windowId, slot, packet.getItemModifier().readSafely(0));
+        if (newItem == null) {
+            return;
+        }
+        packet = packet.shallowClone();
+        packet.getItemModifier().write(0, newItem);
+        event.setPacket(packet);
+    }
+    
+    // Returns an edited copy of the given item, or null if the item does not have to be edited.
+    // Items equal to the ones last sent in the same slot are not edited again, unless they are analyzed.
+    private ItemStack editItem(Player player, PlayerItemCache itemCache, int windowId, int slot, ItemStack item) {
+        boolean analyzing = MessagePlace.INVENTORY_ITEM_NAME.isAnalyzing() || MessagePlace.INVENTORY_ITEM_LORE.isAnalyzing();
+        if (itemCache != null && item != null && !analyzing) {
+            PlayerItemCache.Slot cachedSlot = itemCache.get(windowId, slot, item);
+            if (cachedSlot != null) {
+                return cachedSlot.getEditedItem();
+            }
+        }
+        ItemStack newItem = null;
+        boolean personal = false;
+        if (item != null && ItemComponents.isSupported()) {
+            // Items that are not edited are never copied nor converted to legacy text.
+            Object handle = ItemComponents.getHandle(item);
+            ItemDisplay<Object, Object> display = new ItemDisplay<>(ItemComponents.getName(handle), ItemComponents.getLore(handle));
+            ItemDisplay<Object, Object> newDisplay = this.getEditedDisplay(player, display, analyzing, this::editComponents);
+            // Displays with placeholders set may still end up the same as the original one, in which case the item is not copied either.
+            personal = newDisplay.isPersonal();
+            if (!newDisplay.isEmpty()) {
+                newItem = item.clone();
+                Object newHandle = ItemComponents.getHandle(newItem);
+                if (newDisplay.getName() != null) {
+                    ItemComponents.setName(newHandle, newDisplay.getName());
+                }
+                if (newDisplay.getLore() != null) {
+                    ItemComponents.setLore(newHandle, newDisplay.getLore());
                 }
-                if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-                    if (cachedMessage != null) {
-                        message = cachedMessage.getValue();
+            }
+        } else if (item != null) {
+            // Item meta is only created for items whose name and lore, read directly from the item's tag, are not cached as unchanged.
+            // Edited displays are cached by the raw name and lore, or by the ones read from item meta if the tag cannot be read.
+            ItemDisplay<String, List<String>> rawDisplay = ItemTags.getRawDisplay(item);
+            ItemDisplayCache displayCache = this.getPlugin().getItemDisplayCache();
+            ItemDisplay<String, List<String>> newDisplay = null;
+            if (rawDisplay != null && rawDisplay.isEmpty()) {
+                newDisplay = ItemDisplayCache.unchanged();
+            } else if (rawDisplay != null && !analyzing) {
+                newDisplay = displayCache.get(rawDisplay);
+            }
+            ItemMeta itemMeta = null;
+            if (newDisplay == null) {
+                if (item.hasItemMeta()) {
+                    itemMeta = item.getItemMeta();
+                    ItemDisplay<String, List<String>> display = new ItemDisplay<>(itemMeta.hasDisplayName() ? itemMeta.getDisplayName() : null, itemMeta.hasLore() ? itemMeta.getLore() : null);
+                    if (rawDisplay == null) {
+                        newDisplay = this.getEditedDisplay(player, display, analyzing, this::editDisplay);
                     } else {
-                        String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                        newMessage = MessageUtils.translate(newMessage);
-                        if (this.getPlugin().isPlaceholderApiPresent()) {
-                            newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                        }
-                        this.getPlugin().cacheMessage(message, MessagePlace.INVENTORY_ITEM_NAME, messageEdit, newMessage);
-                        message = newMessage;
+                        newDisplay = display.isEmpty() ? ItemDisplayCache.unchanged() : this.editDisplay(player, display);
+                        displayCache.put(rawDisplay, newDisplay);
                     }
-                }
-                boolean json = MessageUtils.isJson(message);
-                if (json) {
-                    message = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(message));
-                    json = false;
-                }
-                String id = MessageUtils.generateId(MessagePlace.INVENTORY_ITEM_NAME);
-                this.getPlugin().cacheMessageData(id, new MessageData(id, MessagePlace.INVENTORY_ITEM_NAME, message, json));
-                if (MessagePlace.INVENTORY_ITEM_NAME.isAnalyzing()) {
-                    MessageUtils.logMessage(this.getPlugin().getLogger(), MessagePlace.INVENTORY_ITEM_NAME, player, id, json, message);
-                }
-                if (!message.equals(originalMessage)) {
-                    itemMeta.setDisplayName(message);
-                    item.setItemMeta(itemMeta);
-                    update = true;
+                } else {
+                    newDisplay = ItemDisplayCache.unchanged();
                 }
             }
-            if (itemMeta.hasLore()) {
-                String originalMessage = String.join("\\n", itemMeta.getLore());
-                String message = originalMessage;
-                Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message, MessagePlace.INVENTORY_ITEM_LORE);
-                MessageEdit messageEdit = null;
-                Matcher messageEditMatcher = null;
-                if (cachedMessage == null) {
-                    for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                        MessagePlace place = edit.getMessageBeforePlace();
-                        if (place != null && place != MessagePlace.INVENTORY_ITEM_LORE) {
-                            continue;
-                        }
-                        Matcher matcher = edit.getMatcher(message);
-                        if (matcher == null) {
-                            continue;
-                        }
-                        messageEdit = edit;
-                        messageEditMatcher = matcher;
-                        break;
-                    }
+            personal = newDisplay.isPersonal();
+            if (!newDisplay.isEmpty()) {
+                if (itemMeta == null) {
+                    itemMeta = item.getItemMeta();
                 }
-                if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-                    if (cachedMessage != null) {
-                        message = cachedMessage.getValue();
-                    } else {
-                        String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                        newMessage = MessageUtils.translate(newMessage);
-                        if (this.getPlugin().isPlaceholderApiPresent()) {
-                            newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                        }
-                        this.getPlugin().cacheMessage(message, MessagePlace.INVENTORY_ITEM_LORE, messageEdit, newMessage);
-                        message = newMessage;
-                    }
+                if (newDisplay.getName() != null) {
+                    itemMeta.setDisplayName(newDisplay.getName());
                 }
-                boolean json = MessageUtils.isJson(message);
-                if (json) {
-                    message = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(message));
-                    json = false;
+                if (newDisplay.getLore() != null) {
+                    itemMeta.setLore(newDisplay.getLore());
                 }
-                String id = MessageUtils.generateId(MessagePlace.INVENTORY_ITEM_LORE);
-                this.getPlugin().cacheMessageData(id, new MessageData(id, MessagePlace.INVENTORY_ITEM_LORE, message, json));
-                if (MessagePlace.INVENTORY_ITEM_LORE.isAnalyzing()) {
-                    MessageUtils.logMessage(this.getPlugin().getLogger(), MessagePlace.INVENTORY_ITEM_LORE, player, id, json, message);
+                // The item read from the packet may be shared with the server's inventory, so it is never edited directly.
+                newItem = item.clone();
+                newItem.setItemMeta(itemMeta);
+            }
+        }
+        // Items with placeholders set are not cached, as placeholder values may change.
+        if (itemCache != null) {
+            itemCache.put(windowId, slot, personal ? null : item, newItem);
+        }
+        return newItem;
+    }
+    
+    private <N, L> ItemDisplay<N, L> getEditedDisplay(Player player, ItemDisplay<N, L> display, boolean analyzing, BiFunction<Player, ItemDisplay<N, L>, ItemDisplay<N, L>> editor) {
+        if (display.isEmpty()) {
+            return ItemDisplayCache.unchanged();
+        }
+        ItemDisplayCache displayCache = this.getPlugin().getItemDisplayCache();
+        ItemDisplay<N, L> newDisplay = null;
+        if (!analyzing) {
+            newDisplay = displayCache.get(display);
+        }
+        if (newDisplay == null) {
+            newDisplay = editor.apply(player, display);
+            displayCache.put(display, newDisplay);
+        }
+        return newDisplay;
+    }
+    
+    // Components are edited as legacy text, just like item meta would return them.
+    private ItemDisplay<Object, Object> editComponents(Player player, ItemDisplay<Object, Object> display) {
+        String name = display.getName() == null ? null : ItemComponents.toLegacyText(display.getName());
+        List<String> lore = display.getLore() == null ? null : ItemComponents.toLegacyLore(display.getLore());
+        ItemDisplay<String, List<String>> newDisplay = this.editDisplay(player, new ItemDisplay<>(name, lore));
+        if (newDisplay == ItemDisplayCache.UNCHANGED) {
+            return ItemDisplayCache.unchanged();
+        }
+        Object newName = newDisplay.getName() == null ? null : ItemComponents.fromLegacyText(newDisplay.getName());
+        Object newLore = newDisplay.getLore() == null ? null : ItemComponents.fromLegacyLore(newDisplay.getLore());
+        return new ItemDisplay<>(newName, newLore, newDisplay.isPersonal());
+    }
+    
+    // Returns the edited name and lore, with null in place of the ones that are not edited, or UNCHANGED if neither of them is edited.
+    private ItemDisplay<String, List<String>> editDisplay(Player player, ItemDisplay<String, List<String>> display) {
+        boolean personal = false;
+        String newName = null;
+        if (display.getName() != null) {
+            EditedMessage editedMessage = this.editItemMessage(player, display.getName(), MessagePlace.INVENTORY_ITEM_NAME);
+            if (editedMessage != null) {
+                String message = getItemMessage(editedMessage);
+                if (!message.equals(display.getName())) {
+                    newName = message;
                 }
+                personal |= editedMessage.isPersonal();
+            }
+        }
+        List<String> newLore = null;
+        if (display.getLore() != null) {
+            String originalMessage = String.join("\\n", display.getLore());
+            // Whole lores are matched first, so message edits written for them keep working when lines are edited on their own.
+            EditedMessage editedMessage;
+            if (this.getPlugin().isEditInventoryItemLoreLines()) {
+                editedMessage = this.getPlugin().editMessage(player, originalMessage, MessagePlace.INVENTORY_ITEM_LORE);
+            } else {
+                editedMessage = this.editItemMessage(player, originalMessage, MessagePlace.INVENTORY_ITEM_LORE);
+            }
+            if (editedMessage != null) {
+                String message = getItemMessage(editedMessage);
                 if (!message.equals(originalMessage)) {
-                    itemMeta.setLore(Arrays.asList(message.split("\\\\n")));
-                    item.setItemMeta(itemMeta);
-                    update = true;
+                    newLore = Arrays.asList(message.split("\\\\n"));
+                }
+                personal |= editedMessage.isPersonal();
+            } else if (this.getPlugin().isEditInventoryItemLoreLines()) {
+                // Lines are only copied once the first one of them is edited.
+                List<String> lore = display.getLore();
+                for (int index = 0; index < lore.size(); index += 1) {
+                    String line = lore.get(index);
+                    EditedMessage editedLine = this.editItemMessage(player, line, MessagePlace.INVENTORY_ITEM_LORE);
+                    String message = line;
+                    if (editedLine != null) {
+                        message = getItemMessage(editedLine);
+                        personal |= editedLine.isPersonal();
+                    }
+                    if (newLore == null && !message.equals(line)) {
+                        newLore = new ArrayList<>(lore.subList(0, index));
+                    }
+                    // Only edited lines are split, as unchanged ones may contain '\\n' as text.
+                    if (newLore != null && message.equals(line)) {
+                        newLore.add(line);
+                    } else if (newLore != null) {
+                        newLore.addAll(Arrays.asList(message.split("\\\\n")));
+                    }
                 }
             }
         }
-        if (!update) {
+        if (newName == null && newLore == null && !personal) {
+            return ItemDisplayCache.unchanged();
+        }
+        return new ItemDisplay<>(newName, newLore, personal);
+    }
+    
+    // Returns null if the message is not edited. The message is analyzed either way.
+    private EditedMessage editItemMessage(Player player, String message, MessagePlace place) {
+        EditedMessage editedMessage = this.getPlugin().editMessage(player, message, place);
+        if (place.isAnalyzing()) {
+            String newMessage = editedMessage == null ? message : getItemMessage(editedMessage);
+            MessageData data = this.getPlugin().getMessageHistory().addMessage(player.getUniqueId(), place, newMessage, false);
+            MessageUtils.logMessage(this.getPlugin().getLogger(), place, player, data == null ? null : data.getId(), false, newMessage);
+        }
+        return editedMessage;
+    }
+    
+    // Item names and lores are never JSON, but edited messages may be.
+    private static String getItemMessage(EditedMessage editedMessage) {
+        if (editedMessage.isJson()) {
+            return editedMessage.getOutput().getLegacyText();
+        }
+        return editedMessage.getMessage();
+    }
+    
+    // Some clients do not show items edited in the packet until the inventory is updated again, in which case the edited packet can be resent a tick later.
+    // Only the latest packet of each window is resent, no matter how many times the window was updated in the meantime,
+    // and it is not resent at all if any slot of the window is updated after it.
+    private void resend(Player player, PacketContainer packet) {
+        Map.Entry<UUID, Integer> key = new AbstractMap.SimpleImmutableEntry<>(player.getUniqueId(), packet.getIntegers().read(0));
+        if (this.pendingResends.put(key, packet) != null) {
             return;
         }
-        // Updating items in the cloned packet and then replacing the packet does seem to work only partially.
-        // Sometimes, the items are not updated until the inventory itself is updated. 
-        // However, editing the packet and sending it with the edited items a tick later seems to work.
-        // Such solution however is not ideal and may break in the future, for example when a player somehow manages to open another inventory in the span of a tick (not actually tested, just a theory) or when the inventory is changed multiple times in a rapid succession.
-        // If any of the issues were to happen, the solution would be to store the window id of the inventory and only update the items of the inventory with the same window id.
-        this.plugin.getServer().getScheduler().runTaskAsynchronously(this.getPlugin(), () -> ProtocolLibrary.getProtocolManager().sendServerPacket(player, packet));
+        this.getPlugin().getServer().getScheduler().runTaskLater(this.getPlugin(), () -> {
+            PacketContainer latestPacket = this.pendingResends.remove(key);
+            if (latestPacket != null && player.isOnline()) {
+                // The packet is already edited, so it does not have to go through packet listeners again.
+                ProtocolLibrary.getProtocolManager().sendServerPacket(player, latestPacket, false);
+            }
+        }, 1L);
     }
 }
@@ -0,0 +1,65 @@
+package dev.jaqobb.message_editor.listener.packet;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketEvent;
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Single packet listener registered in ProtocolLib, which passes each packet to the packet listeners of its type.
+//
+// Packet listeners of each packet type are resolved once, so ProtocolLib dispatches each packet only once, no matter how many packet listeners there are.
+// Packet listeners still read messages from packets on their own. This is done once per packet, as no packet type is handled by more than one of them,
+// e.g. chat and system chat messages are both handled by the chat packet listener, and inventory item names and lores by the inventory item packet listener.
+public class MessagePacketListener extends PacketAdapter {
+    
+    private final Map<PacketType, PacketAdapter[]> packetListeners;
+    
+    public MessagePacketListener(MessageEditorPlugin plugin, Collection<PacketAdapter> packetListeners) {
+        super(plugin, ListenerPriority.HIGHEST, getPacketTypes(packetListeners));
+        this.packetListeners = new HashMap<>();
+        for (PacketAdapter packetListener : packetListeners) {
+            for (PacketType packetType : packetListener.getSendingWhitelist().getTypes()) {
+                PacketAdapter[] typePacketListeners = this.packetListeners.get(packetType);
+                if (typePacketListeners == null) {
+                    typePacketListeners = new PacketAdapter[] {packetListener};
+                } else {
+                    typePacketListeners = Arrays.copyOf(typePacketListeners, typePacketListeners.length + 1);
+                    typePacketListeners[typePacketListeners.length - 1] = packetListener;
+                }
+                this.packetListeners.put(packetType, typePacketListeners);
+            }
+        }
+    }
+    
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        PacketAdapter[] typePacketListeners = this.packetListeners.get(event.getPacketType());
+        if (typePacketListeners == null) {
+            return;
+        }
+        for (PacketAdapter packetListener : typePacketListeners) {
+            packetListener.onPacketSending(event);
+            if (event.isCancelled()) {
+                return;
+            }
+        }
+    }
+    
+    private static Set<PacketType> getPacketTypes(Collection<PacketAdapter> packetListeners) {
+        Set<PacketType> packetTypes = new LinkedHashSet<>();
+        for (PacketAdapter packetListener : packetListeners) {
+            packetTypes.addAll(packetListener.getSendingWhitelist().getTypes());
+        }
+        return packetTypes;
+    }
+}
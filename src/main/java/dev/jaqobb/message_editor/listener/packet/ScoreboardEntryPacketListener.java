@@ -1,18 +1,56 @@
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.message.cache.PlayerScoreboardCache;
+import java.util.ArrayList;
+import java.util.Collection;
 
 public class ScoreboardEntryPacketListener extends CommonPacketListener {
     
     public ScoreboardEntryPacketListener(MessageEditorPlugin plugin) {
-        super(plugin, MessagePlace.SCOREBOARD_ENTRY);
+        super(plugin, MessagePlace.SCOREBOARD_ENTRY, getPacketTypes());
+    }
+    
+    // Scores are reset with a separate packet since 1.20.3.
+    private static Collection<PacketType> getPacketTypes() {
+        Collection<PacketType> packetTypes = new ArrayList<>(MessagePlace.SCOREBOARD_ENTRY.getPacketTypes());
+        if (PacketType.Play.Server.RESET_SCORE.isSupported()) {
+            packetTypes.add(PacketType.Play.Server.RESET_SCORE);
+        }
+        return packetTypes;
     }
     
     @Override
     public boolean shouldProcess(PacketContainer packet) {
-        return packet.getScoreboardActions().readSafely(0) != EnumWrappers.ScoreboardAction.REMOVE;
+        return packet.getType() != PacketType.Play.Server.RESET_SCORE && packet.getScoreboardActions().readSafely(0) != EnumWrappers.ScoreboardAction.REMOVE;
+    }
+    
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        super.onPacketSending(event);
+        if (event.isCancelled() || !this.getPlugin().isSkipRedundantScoreboardUpdates()) {
+            return;
+        }
+        PlayerScoreboardCache scoreboardCache = this.getPlugin().getScoreboardCache(event.getPlayer().getUniqueId());
+        if (scoreboardCache == null) {
+            return;
+        }
+        // The packet is already edited at this point.
+        PacketContainer packet = event.getPacket();
+        String entry = packet.getStrings().readSafely(0);
+        String objective = packet.getStrings().readSafely(1);
+        // Removed entries are not edited, so they may not match the sent ones, and all scores of the objective are forgotten instead.
+        if (packet.getType() == PacketType.Play.Server.RESET_SCORE || packet.getScoreboardActions().readSafely(0) == EnumWrappers.ScoreboardAction.REMOVE) {
+            scoreboardCache.removeScores(objective == null || objective.isEmpty() ? null : objective);
+            return;
+        }
+        if (!scoreboardCache.updateScore(objective, entry, packet.getModifier().getValues())) {
+            event.setCancelled(true);
+        }
     }
 }
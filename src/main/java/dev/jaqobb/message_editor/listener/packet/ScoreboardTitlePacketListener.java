@@ -1,8 +1,10 @@
 package dev.jaqobb.message_editor.listener.packet;
 
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.message.cache.PlayerScoreboardCache;
 
 public class ScoreboardTitlePacketListener extends CommonPacketListener {
     
@@ -17,4 +19,27 @@ public class ScoreboardTitlePacketListener extends CommonPacketListener {
         int action = packet.getIntegers().readSafely(0);
         return action == 0 || action == 2;
     }
+    
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        super.onPacketSending(event);
+        if (event.isCancelled() || !this.getPlugin().isSkipRedundantScoreboardUpdates()) {
+            return;
+        }
+        PlayerScoreboardCache scoreboardCache = this.getPlugin().getScoreboardCache(event.getPlayer().getUniqueId());
+        if (scoreboardCache == null) {
+            return;
+        }
+        // The packet is already edited at this point.
+        PacketContainer packet = event.getPacket();
+        String objective = packet.getStrings().readSafely(0);
+        int action = packet.getIntegers().readSafely(0);
+        if (action == 0) {
+            scoreboardCache.addObjective(objective, packet.getModifier().getValues());
+        } else if (action == 1) {
+            scoreboardCache.removeObjective(objective);
+        } else if (action == 2 && !scoreboardCache.updateObjective(objective, packet.getModifier().getValues())) {
+            event.setCancelled(true);
+        }
+    }
 }
@@ -139,7 +139,7 @@ public class PlayerInventoryClickListener implements Listener {
             }
             MessagePlace newMessagePlace = editData.getNewMessagePlace();
             MessageEdit edit = new MessageEdit(oldMessagePatternString, oldMessagePlace, newMessage, newMessagePlace);
-            this.plugin.addMessageEdit(edit);
+            this.plugin.addMessageEdit(file.getName(), edit);
             this.plugin.clearCachedMessages();
             try {
                 if (file.createNewFile()) {
@@ -19,6 +19,12 @@ public class PlayerJoinListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
+        this.plugin.addPlaceholderCache(player.getUniqueId());
+        this.plugin.addItemCache(player.getUniqueId());
+        this.plugin.addEntityNameCache(player.getUniqueId());
+        this.plugin.addBossBarCache(player.getUniqueId());
+        this.plugin.addScoreboardCache(player.getUniqueId());
+        this.plugin.getMessageHistory().addPlayer(player.getUniqueId());
         if (!player.hasPermission("messageeditor.use") || !this.plugin.isUpdateNotify()) {
             return;
         }
@@ -17,5 +17,11 @@ public class PlayerKickListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerKick(PlayerKickEvent event) {
         this.plugin.removeCurrentMessageEditData(event.getPlayer().getUniqueId());
+        this.plugin.removePlaceholderCache(event.getPlayer().getUniqueId());
+        this.plugin.removeItemCache(event.getPlayer().getUniqueId());
+        this.plugin.removeEntityNameCache(event.getPlayer().getUniqueId());
+        this.plugin.removeBossBarCache(event.getPlayer().getUniqueId());
+        this.plugin.removeScoreboardCache(event.getPlayer().getUniqueId());
+        this.plugin.getMessageHistory().removePlayer(event.getPlayer().getUniqueId());
     }
 }
@@ -39,6 +39,16 @@ public class MenuManager {
         this.plugin = plugin;
     }
     
+    // Returns false if the message is no longer in the message history.
+    public boolean openMenu(Player player, String messageId, boolean playSound) {
+        MessageData data = this.plugin.getMessageData(messageId);
+        if (data == null) {
+            return false;
+        }
+        this.openMenu(player, data, playSound);
+        return true;
+    }
+    
     public void openMenu(Player player, MessageData data, boolean playSound) {
         MessageEditData editData = new MessageEditData(data);
         this.openMenu(player, editData, playSound);
@@ -0,0 +1,58 @@
+package dev.jaqobb.message_editor.message;
+
+public final class EditedMessage {
+    
+    private final MessageEdit edit;
+    private final String message;
+    private final boolean json;
+    private final boolean placeholders;
+    private final boolean personal;
+    private final MessageOutput output;
+    
+    public EditedMessage(MessageEdit edit, String message, boolean json, boolean placeholders) {
+        this(edit, message, json, placeholders, false);
+    }
+    
+    public EditedMessage(MessageEdit edit, String message, boolean json, boolean placeholders, boolean personal) {
+        this.edit = edit;
+        this.message = message;
+        this.json = json;
+        this.placeholders = placeholders;
+        this.personal = personal;
+        this.output = new MessageOutput(message, json);
+    }
+    
+    // Null if the message comes from a translation table.
+    public MessageEdit getEdit() {
+        return this.edit;
+    }
+    
+    public String getMessage() {
+        return this.message;
+    }
+    
+    public boolean isJson() {
+        return this.json;
+    }
+    
+    // Whether the message may contain PlaceholderAPI placeholders that still have to be set for each player.
+    public boolean hasPlaceholders() {
+        return this.placeholders;
+    }
+    
+    // Whether placeholders were set for a single player, in which case the message may change each time it is sent.
+    public boolean isPersonal() {
+        return this.personal;
+    }
+    
+    public MessageOutput getOutput() {
+        return this.output;
+    }
+    
+    public MessagePlace getMessageAfterPlace() {
+        if (this.edit == null) {
+            return null;
+        }
+        return this.edit.getMessageAfterPlace();
+    }
+}
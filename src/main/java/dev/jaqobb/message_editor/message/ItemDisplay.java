@@ -0,0 +1,59 @@
+package dev.jaqobb.message_editor.message;
+
+import java.util.Objects;
+
+// Name and lore of an item, either of which may be null if the item does not have it.
+// They are either legacy texts read from item meta, or components read directly from the item.
+public final class ItemDisplay<N, L> {
+    
+    private final N name;
+    private final L lore;
+    private final boolean personal;
+    private final int hash;
+    
+    public ItemDisplay(N name, L lore) {
+        this(name, lore, false);
+    }
+    
+    public ItemDisplay(N name, L lore, boolean personal) {
+        this.name = name;
+        this.lore = lore;
+        this.personal = personal;
+        // Hash is computed once, as lores can be long and displays are looked up for each sent item.
+        this.hash = Objects.hash(name, lore);
+    }
+    
+    public N getName() {
+        return this.name;
+    }
+    
+    public L getLore() {
+        return this.lore;
+    }
+    
+    // Whether placeholders were set for a single player in the name or lore.
+    public boolean isPersonal() {
+        return this.personal;
+    }
+    
+    public boolean isEmpty() {
+        return this.name == null && this.lore == null;
+    }
+    
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object == null || this.getClass() != object.getClass()) {
+            return false;
+        }
+        ItemDisplay<?, ?> that = (ItemDisplay<?, ?>) object;
+        return this.hash == that.hash && Objects.equals(this.name, that.name) && Objects.equals(this.lore, that.lore);
+    }
+    
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+}
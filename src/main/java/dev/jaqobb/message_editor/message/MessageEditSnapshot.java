@@ -0,0 +1,100 @@
+package dev.jaqobb.message_editor.message;
+
+import dev.jaqobb.message_editor.message.index.MessageEditIndex;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Message edits along with everything compiled from them. Snapshots are never modified once created,
+// so packet listeners can read one without any locking while a new one is being built for changed edits.
+//
+// Message edits from the configuration come first, followed by message edits from files in the 'edits' directory,
+// which are kept by their file names so they can be replaced one by one.
+public final class MessageEditSnapshot {
+    
+    public static final MessageEditSnapshot EMPTY = new MessageEditSnapshot(Collections.emptyList(), Collections.emptyMap(), MessageTranslationTable.EMPTY, 0);
+    
+    private final List<MessageEdit> configEdits;
+    private final Map<String, MessageEdit> fileEdits;
+    private final List<MessageEdit> edits;
+    private final MessageEditIndex index;
+    private final MessageTranslationTable translationTable;
+    private final MessageMissCache missCache;
+    
+    public MessageEditSnapshot(List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits, MessageTranslationTable translationTable, int missCacheSize) {
+        this(Collections.unmodifiableList(new ArrayList<>(configEdits)), Collections.unmodifiableMap(new LinkedHashMap<>(fileEdits)), translationTable, new MessageMissCache(missCacheSize));
+    }
+    
+    private MessageEditSnapshot(List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits, MessageTranslationTable translationTable, MessageMissCache missCache) {
+        this.configEdits = configEdits;
+        this.fileEdits = fileEdits;
+        List<MessageEdit> edits = new ArrayList<>(configEdits.size() + fileEdits.size());
+        edits.addAll(configEdits);
+        edits.addAll(fileEdits.values());
+        this.edits = Collections.unmodifiableList(edits);
+        this.index = new MessageEditIndex(this.edits);
+        this.translationTable = translationTable;
+        this.missCache = missCache;
+    }
+    
+    private MessageEditSnapshot(MessageEditSnapshot snapshot, MessageTranslationTable translationTable, MessageMissCache missCache) {
+        this.configEdits = snapshot.configEdits;
+        this.fileEdits = snapshot.fileEdits;
+        this.edits = snapshot.edits;
+        this.index = snapshot.index;
+        this.translationTable = translationTable;
+        this.missCache = missCache;
+    }
+    
+    public List<MessageEdit> getEdits() {
+        return this.edits;
+    }
+    
+    public Map<String, MessageEdit> getFileEdits() {
+        return this.fileEdits;
+    }
+    
+    public MessageEditIndex getIndex() {
+        return this.index;
+    }
+    
+    public MessageTranslationTable getTranslationTable() {
+        return this.translationTable;
+    }
+    
+    public MessageMissCache getMissCache() {
+        return this.missCache;
+    }
+    
+    public MessageEditSnapshot withEdit(String fileName, MessageEdit edit, int missCacheSize) {
+        return this.withFileEdits(Collections.singletonMap(fileName, edit), missCacheSize);
+    }
+    
+    // Message edits mapped to null are removed. Changed files keep their place, new files are added at the end.
+    public MessageEditSnapshot withFileEdits(Map<String, MessageEdit> changedEdits, int missCacheSize) {
+        Map<String, MessageEdit> fileEdits = new LinkedHashMap<>(this.fileEdits);
+        boolean added = false;
+        for (Map.Entry<String, MessageEdit> changedEdit : changedEdits.entrySet()) {
+            if (changedEdit.getValue() == null) {
+                fileEdits.remove(changedEdit.getKey());
+            } else {
+                fileEdits.put(changedEdit.getKey(), changedEdit.getValue());
+                added = true;
+            }
+        }
+        // Messages that did not match any message edit still do not match any when message edits are only removed.
+        MessageMissCache missCache = added ? new MessageMissCache(missCacheSize) : this.missCache;
+        return new MessageEditSnapshot(this.configEdits, Collections.unmodifiableMap(fileEdits), this.translationTable, missCache);
+    }
+    
+    public MessageEditSnapshot withTranslationTable(MessageTranslationTable translationTable, int missCacheSize) {
+        return new MessageEditSnapshot(this, translationTable, new MessageMissCache(missCacheSize));
+    }
+    
+    // Edits stay the same, only the messages that did not match them are forgotten.
+    public MessageEditSnapshot withMissCache(int missCacheSize) {
+        return new MessageEditSnapshot(this, this.translationTable, new MessageMissCache(missCacheSize));
+    }
+}
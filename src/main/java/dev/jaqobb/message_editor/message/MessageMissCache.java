@@ -0,0 +1,82 @@
+package dev.jaqobb.message_editor.message;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Remembers messages that did not match any message edit, so they do not have to be matched against all edits again.
+//
+// Only 64-bit fingerprints of messages are stored, in sets of 4 slots. When a set is full, one of its fingerprints is overwritten,
+// so memory usage never grows past the configured size. A new instance has to be used whenever message edits change.
+public final class MessageMissCache {
+    
+    private static final int SET_SIZE = 4;
+    
+    private final AtomicLongArray fingerprints;
+    private final int setMask;
+    
+    public MessageMissCache(int size) {
+        if (size <= 0) {
+            this.fingerprints = null;
+            this.setMask = 0;
+            return;
+        }
+        int sets = Integer.highestOneBit(Math.max((size + SET_SIZE - 1) / SET_SIZE, 1));
+        this.fingerprints = new AtomicLongArray(sets * SET_SIZE);
+        this.setMask = sets - 1;
+    }
+    
+    public boolean isEnabled() {
+        return this.fingerprints != null;
+    }
+    
+    public boolean contains(long fingerprint) {
+        if (this.fingerprints == null) {
+            return false;
+        }
+        int start = this.getSetStart(fingerprint);
+        for (int index = start; index < start + SET_SIZE; index += 1) {
+            long slot = this.fingerprints.get(index);
+            if (slot == fingerprint) {
+                return true;
+            }
+            if (slot == 0L) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    public void add(long fingerprint) {
+        if (this.fingerprints == null) {
+            return;
+        }
+        int start = this.getSetStart(fingerprint);
+        for (int index = start; index < start + SET_SIZE; index += 1) {
+            long slot = this.fingerprints.get(index);
+            if (slot == fingerprint) {
+                return;
+            }
+            if (slot == 0L && this.fingerprints.compareAndSet(index, 0L, fingerprint)) {
+                return;
+            }
+        }
+        // The set is full, overwrite one of its fingerprints picked by the fingerprint's upper bits.
+        this.fingerprints.set(start + (int) (fingerprint >>> 62), fingerprint);
+    }
+    
+    private int getSetStart(long fingerprint) {
+        return ((int) (fingerprint ^ (fingerprint >>> 32)) & this.setMask) * SET_SIZE;
+    }
+    
+    // 0 is never returned as it marks empty slots.
+    public static long fingerprint(String message, MessagePlace place) {
+        long hash = 0xCBF29CE484222325L ^ (place.ordinal() + 1L) * 0x9E3779B97F4A7C15L;
+        for (int index = 0; index < message.length(); index += 1) {
+            hash = (hash ^ message.charAt(index)) * 0x100000001B3L;
+        }
+        hash ^= message.length();
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash == 0L ? 1L : hash;
+    }
+}
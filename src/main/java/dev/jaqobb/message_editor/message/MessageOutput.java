@@ -0,0 +1,87 @@
+package dev.jaqobb.message_editor.message;
+
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+
+// Message to be written into packets along with the objects it is written as.
+// Objects are created the first time they are needed and then shared between packets. NMS components are shared the same way
+// entity names and boss bar titles are, as the server never modifies components of sent packets.
+// Bungee components are plain objects that plugins commonly modify, so each packet gets its own copy of them.
+public final class MessageOutput {
+    
+    private final String message;
+    private final boolean json;
+    private volatile String jsonMessage;
+    private volatile WrappedChatComponent chatComponent;
+    private volatile BaseComponent[] baseComponents;
+    private volatile Component adventureComponent;
+    private volatile String legacyText;
+    
+    public MessageOutput(String message, boolean json) {
+        this.message = message;
+        this.json = json;
+    }
+    
+    public String getMessage() {
+        return this.message;
+    }
+    
+    public boolean isJson() {
+        return this.json;
+    }
+    
+    public String getJson() {
+        String jsonMessage = this.jsonMessage;
+        if (jsonMessage == null) {
+            jsonMessage = this.json ? this.message : MessageUtils.toJson(MessageUtils.toBaseComponents(this.message), true);
+            this.jsonMessage = jsonMessage;
+        }
+        return jsonMessage;
+    }
+    
+    public WrappedChatComponent getChatComponent() {
+        WrappedChatComponent chatComponent = this.chatComponent;
+        if (chatComponent == null) {
+            chatComponent = WrappedChatComponent.fromJson(this.getJson());
+            this.chatComponent = chatComponent;
+        }
+        return chatComponent;
+    }
+    
+    public BaseComponent[] getBaseComponents() {
+        // The parsed components are only used as a template and never leave this object.
+        BaseComponent[] baseComponents = this.baseComponents;
+        if (baseComponents == null) {
+            baseComponents = this.json ? ComponentSerializer.parse(this.message) : MessageUtils.toBaseComponents(this.message);
+            this.baseComponents = baseComponents;
+        }
+        BaseComponent[] copies = new BaseComponent[baseComponents.length];
+        for (int index = 0; index < baseComponents.length; index += 1) {
+            copies[index] = baseComponents[index].duplicate();
+        }
+        return copies;
+    }
+    
+    // Must only be called if Adventure is present.
+    public Component getAdventureComponent() {
+        Component adventureComponent = this.adventureComponent;
+        if (adventureComponent == null) {
+            adventureComponent = GsonComponentSerializer.gson().deserialize(this.getJson());
+            this.adventureComponent = adventureComponent;
+        }
+        return adventureComponent;
+    }
+    
+    public String getLegacyText() {
+        String legacyText = this.legacyText;
+        if (legacyText == null) {
+            legacyText = this.json ? BaseComponent.toLegacyText(ComponentSerializer.parse(this.message)) : this.message;
+            this.legacyText = legacyText;
+        }
+        return legacyText;
+    }
+}
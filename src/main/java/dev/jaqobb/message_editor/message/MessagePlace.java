@@ -5,16 +5,11 @@ import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import com.comphenix.protocol.wrappers.WrappedChatComponent;
-import com.comphenix.protocol.wrappers.WrappedDataValue;
-import com.comphenix.protocol.wrappers.WrappedWatchableObject;
+import dev.jaqobb.message_editor.util.EntityDataUtils;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import net.md_5.bungee.api.chat.BaseComponent;
-import net.md_5.bungee.chat.ComponentSerializer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 public enum MessagePlace {
@@ -26,8 +21,8 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            MessageUtils.updateMessage(packet, PacketType.Play.Server.CHAT, message, json);
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            MessageUtils.updateMessage(packet, PacketType.Play.Server.CHAT, message);
         }
     },
     SYSTEM_CHAT("SC", "System Chat", MinecraftVersion.BOUNTIFUL_UPDATE, new HashSet<>(Arrays.asList(PacketType.Play.Server.CHAT, PacketType.Play.Server.SYSTEM_CHAT)), (byte) 1, EnumWrappers.ChatType.SYSTEM) {
@@ -37,8 +32,13 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            MessageUtils.updateMessage(packet, packet.getType(), message, json);
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            MessageUtils.updateMessage(packet, packet.getType(), message);
+        }
+        
+        @Override
+        public boolean isMessageJson(PacketContainer packet, String message) {
+            return MessageUtils.isRetrievedMessageJson(packet.getType(), message);
         }
     },
     ACTION_BAR("AB", "Action Bar", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.CHAT), (byte) 2, EnumWrappers.ChatType.GAME_INFO) {
@@ -52,13 +52,22 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
+        public void setMessage(PacketContainer packet, MessageOutput message) {
             // <1.19. 1.19+ uses system chat packet for action bar messages.
             if (!MinecraftVersion.WILD_UPDATE.atOrAbove()) {
-                MessageUtils.updateMessage(packet, PacketType.Play.Server.CHAT, message, json);
+                MessageUtils.updateMessage(packet, PacketType.Play.Server.CHAT, message);
                 return;
             }
-            MessageUtils.updateMessage(packet, PacketType.Play.Server.SYSTEM_CHAT, message, json);
+            MessageUtils.updateMessage(packet, PacketType.Play.Server.SYSTEM_CHAT, message);
+        }
+        
+        @Override
+        public boolean isMessageJson(PacketContainer packet, String message) {
+            // <1.19. 1.19+ uses system chat packet for action bar messages.
+            if (!MinecraftVersion.WILD_UPDATE.atOrAbove()) {
+                return MessageUtils.isRetrievedMessageJson(PacketType.Play.Server.CHAT, message);
+            }
+            return MessageUtils.isRetrievedMessageJson(PacketType.Play.Server.SYSTEM_CHAT, message);
         }
     },
     KICK("K", "Kick", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.KICK_DISCONNECT)) {
@@ -68,12 +77,8 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            if (!json) {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
-                return;
-            }
-            packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            packet.getChatComponents().write(0, message.getChatComponent());
         }
     },
     DISCONNECT("D", "Disconnect", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Login.Server.DISCONNECT)) {
@@ -83,12 +88,8 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            if (!json) {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
-                return;
-            }
-            packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            packet.getChatComponents().write(0, message.getChatComponent());
         }
     },
     BOSS_BAR("BB", "Boss Bar", MinecraftVersion.COMBAT_UPDATE, Collections.singleton(PacketType.Play.Server.BOSS)) {
@@ -101,20 +102,12 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
+        public void setMessage(PacketContainer packet, MessageOutput message) {
             if (!MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
-                if (!json) {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
-                    return;
-                }
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
-                return;
-            }
-            if (!json) {
-                packet.getStructures().readSafely(1).getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getChatComponents().write(0, message.getChatComponent());
                 return;
             }
-            packet.getStructures().readSafely(1).getChatComponents().write(0, WrappedChatComponent.fromJson(message));
+            packet.getStructures().readSafely(1).getChatComponents().write(0, message.getChatComponent());
         }
     },
     SCOREBOARD_TITLE("ST", "Scoreboard Title", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.SCOREBOARD_OBJECTIVE)) {
@@ -127,16 +120,17 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
+        public void setMessage(PacketContainer packet, MessageOutput message) {
             if (packet.getStrings().size() == 2) {
-                packet.getStrings().write(1, message);
-                return;
-            }
-            if (!json) {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getStrings().write(1, message.getMessage());
                 return;
             }
-            packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
+            packet.getChatComponents().write(0, message.getChatComponent());
+        }
+        
+        @Override
+        public boolean isMessageJson(PacketContainer packet, String message) {
+            return packet.getStrings().size() != 2;
         }
     },
     SCOREBOARD_ENTRY("SE", "Scoreboard Entry", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.SCOREBOARD_SCORE)) {
@@ -146,12 +140,13 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            if (!json) {
-                packet.getStrings().write(0, message);
-                return;
-            }
-            packet.getStrings().write(0, BaseComponent.toLegacyText(ComponentSerializer.parse(message)));
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            packet.getStrings().write(0, message.getLegacyText());
+        }
+        
+        @Override
+        public boolean isMessageJson(PacketContainer packet, String message) {
+            return false;
         }
     },
     INVENTORY_TITLE("IT", "Inventory Title", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.OPEN_WINDOW)) {
@@ -161,12 +156,8 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            if (!json) {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
-                return;
-            }
-            packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            packet.getChatComponents().write(0, message.getChatComponent());
         }
     },
     INVENTORY_ITEM_NAME("ITN", "Inventory Item Name", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.WINDOW_ITEMS)) {
@@ -177,7 +168,7 @@ public enum MessagePlace {
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
+        public void setMessage(PacketContainer packet, MessageOutput message) {
             // Items are an exception and do not use this.
             throw new UnsupportedOperationException();
         }
@@ -191,98 +182,28 @@ public enum MessagePlace {
         
         // Items are an exception and do not use this.
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
+        public void setMessage(PacketContainer packet, MessageOutput message) {
             throw new UnsupportedOperationException();
         }
     },
     ENTITY_NAME("EN", "Entity Name", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.ENTITY_METADATA)) {
+        @Override
+        public boolean hasMessage(PacketContainer packet) {
+            return EntityDataUtils.hasCustomName(packet);
+        }
+        
         @Override
         public String getMessage(PacketContainer packet) {
-            if (!MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
-                if (objects == null) {
-                    return null;
-                }
-                for (WrappedWatchableObject object : objects) {
-                    if (object.getIndex() != 2) {
-                        continue;
-                    }
-                    Object value = object.getValue();
-                    if (!(value instanceof Optional)) {
-                        continue;
-                    }
-                    Optional<?> name = (Optional<?>) value;
-                    if (!name.isPresent()) {
-                        return null;
-                    }
-                    Object nameValue = name.get();
-                    if (!(nameValue instanceof WrappedChatComponent)) {
-                        return WrappedChatComponent.fromHandle(nameValue).getJson();
-                    }
-                    return ((WrappedChatComponent) nameValue).getJson();
-                }
+            Object name = EntityDataUtils.getCustomName(packet);
+            if (name == null) {
                 return null;
             }
-            List<WrappedDataValue> dataValues = packet.getDataValueCollectionModifier().readSafely(0);
-            if (dataValues == null) {
-                return null;
-            }
-            for (WrappedDataValue dataValue : dataValues) {
-                if (dataValue.getIndex() != 2) {
-                    continue;
-                }
-                Object value = dataValue.getValue();
-                if (!(value instanceof Optional)) {
-                    continue;
-                }
-                Optional<?> name = (Optional<?>) value;
-                if (!name.isPresent()) {
-                    return null;
-                }
-                Object nameValue = name.get();
-                if (!(nameValue instanceof WrappedChatComponent)) {
-                    return WrappedChatComponent.fromHandle(nameValue).getJson();
-                }
-                return ((WrappedChatComponent) nameValue).getJson();
-            }
-            return null;
+            return WrappedChatComponent.fromHandle(name).getJson();
         }
         
         @Override
-        public void setMessage(PacketContainer packet, String message, boolean json) {
-            if (!MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
-                if (objects == null) {
-                    return;
-                }
-                for (WrappedWatchableObject object : objects) {
-                    if (object.getIndex() != 2) {
-                        continue;
-                    }
-                    if (!json) {
-                        object.setValue(Optional.of(WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)).getHandle()));
-                        return;
-                    }
-                    object.setValue(Optional.of(WrappedChatComponent.fromJson(message).getHandle()));
-                    return;
-                }
-                return;
-            }
-            List<WrappedDataValue> dataValues = packet.getDataValueCollectionModifier().readSafely(0);
-            if (dataValues == null) {
-                return;
-            }
-            for (WrappedDataValue dataValue : dataValues) {
-                if (dataValue.getIndex() != 2) {
-                    continue;
-                }
-                if (!json) {
-                    dataValue.setValue(Optional.of(WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true))));
-                    return;
-                }
-                dataValue.setValue(Optional.of(WrappedChatComponent.fromJson(message)));
-                return;
-            }
+        public void setMessage(PacketContainer packet, MessageOutput message) {
+            EntityDataUtils.setCustomName(packet, message.getChatComponent().getHandle());
         }
     };
     
@@ -295,7 +216,7 @@ public enum MessagePlace {
     private final Byte chatType;
     private final EnumWrappers.ChatType chatTypeEnum;
     private final boolean supported;
-    private boolean analyzing;
+    private volatile boolean analyzing;
     
     MessagePlace(String id, String friendlyName, MinecraftVersion minimumRequiredMinecraftVersion, Set<PacketType> packetTypes) {
         this(id, friendlyName, minimumRequiredMinecraftVersion, packetTypes, null, null);
@@ -348,9 +269,19 @@ public enum MessagePlace {
         this.analyzing = analyzing;
     }
     
+    // Whether the packet may contain a message. Checked before the packet is cloned, so it must not change the packet.
+    public boolean hasMessage(PacketContainer packet) {
+        return true;
+    }
+    
     public abstract String getMessage(PacketContainer packet);
     
-    public abstract void setMessage(PacketContainer packet, String message, boolean json);
+    public abstract void setMessage(PacketContainer packet, MessageOutput message);
+    
+    // Whether messages returned by getMessage are JSON. Most message places read them from chat components, so they always are.
+    public boolean isMessageJson(PacketContainer packet, String message) {
+        return true;
+    }
     
     public static MessagePlace fromName(String name) {
         return Arrays.stream(VALUES)
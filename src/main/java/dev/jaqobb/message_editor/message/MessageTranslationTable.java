@@ -0,0 +1,169 @@
+package dev.jaqobb.message_editor.message;
+
+import com.comphenix.protocol.utility.MinecraftVersion;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Exact message translations loaded from '.tsv' files in the 'edits' directory.
+//
+// Each file consists of '[<message place>]' headers followed by lines with the message before and the message after separated by a tab.
+// Lines starting with '#' are comments. Messages are taken literally, only the message after has its '&' color codes translated.
+public final class MessageTranslationTable {
+    
+    public static final String FILE_EXTENSION = ".tsv";
+    
+    public static final MessageTranslationTable EMPTY = new MessageTranslationTable(new Table[MessagePlace.VALUES.length], 0);
+    
+    private final Table[] tables;
+    private final int size;
+    
+    private MessageTranslationTable(Table[] tables, int size) {
+        this.tables = tables;
+        this.size = size;
+    }
+    
+    public int size() {
+        return this.size;
+    }
+    
+    public String translate(String message, MessagePlace place) {
+        Table table = this.tables[place.ordinal()];
+        if (table == null) {
+            return null;
+        }
+        return table.get(message);
+    }
+    
+    public static MessageTranslationTable load(Collection<File> files, Logger logger) {
+        if (files.isEmpty()) {
+            return EMPTY;
+        }
+        List<List<String>> keys = new ArrayList<>(MessagePlace.VALUES.length);
+        List<List<String>> values = new ArrayList<>(MessagePlace.VALUES.length);
+        for (int index = 0; index < MessagePlace.VALUES.length; index += 1) {
+            keys.add(new ArrayList<>());
+            values.add(new ArrayList<>());
+        }
+        for (File file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                MessagePlace place = null;
+                boolean skippingLogged = false;
+                int lineNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber += 1;
+                    if (line.isEmpty() || line.charAt(0) == '#') {
+                        continue;
+                    }
+                    int separator = line.indexOf('\t');
+                    // Only lines without a tab are headers, so translations of messages such as '[VIP]' are not mistaken for them.
+                    if (separator == -1 && line.charAt(0) == '[' && line.charAt(line.length() - 1) == ']') {
+                        String placeName = line.substring(1, line.length() - 1).trim();
+                        place = normalizePlace(MessagePlace.fromName(placeName));
+                        if (place == null) {
+                            logger.log(Level.WARNING, "Unknown message place '" + placeName + "' in '" + file.getName() + "' at line " + lineNumber + ", its translations will be skipped.");
+                        }
+                        skippingLogged = true;
+                        continue;
+                    }
+                    if (separator == -1) {
+                        logger.log(Level.WARNING, "Missing tab between messages in '" + file.getName() + "' at line " + lineNumber + ".");
+                        continue;
+                    }
+                    if (place == null) {
+                        if (!skippingLogged) {
+                            logger.log(Level.WARNING, "Translations in '" + file.getName() + "' at line " + lineNumber + " are not preceded by a message place header and will be skipped.");
+                            skippingLogged = true;
+                        }
+                        continue;
+                    }
+                    keys.get(place.ordinal()).add(line.substring(0, separator));
+                    values.get(place.ordinal()).add(MessageUtils.translate(line.substring(separator + 1)));
+                }
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Could not load message translations from '" + file.getName() + "'.", exception);
+            }
+        }
+        Table[] tables = new Table[MessagePlace.VALUES.length];
+        int size = 0;
+        for (MessagePlace place : MessagePlace.VALUES) {
+            List<String> placeKeys = keys.get(place.ordinal());
+            if (placeKeys.isEmpty()) {
+                continue;
+            }
+            Table table = new Table(placeKeys, values.get(place.ordinal()));
+            tables[place.ordinal()] = table;
+            size += table.size;
+        }
+        return new MessageTranslationTable(tables, size);
+    }
+    
+    // Game chat translations are applied to system chat messages on 1.19+.
+    private static MessagePlace normalizePlace(MessagePlace place) {
+        if (place == MessagePlace.GAME_CHAT && MinecraftVersion.WILD_UPDATE.atOrAbove()) {
+            return MessagePlace.SYSTEM_CHAT;
+        }
+        return place;
+    }
+    
+    // Open addressing hash map with linear probing. The first translation of a message wins, just like the first matching message edit does.
+    private static final class Table {
+        
+        private final int[] hashes;
+        private final String[] keys;
+        private final String[] values;
+        private final int mask;
+        private final int size;
+        
+        private Table(List<String> keys, List<String> values) {
+            int capacity = Integer.highestOneBit(Math.max(keys.size(), 1) * 2 - 1) << 1;
+            this.hashes = new int[capacity];
+            this.keys = new String[capacity];
+            this.values = new String[capacity];
+            this.mask = capacity - 1;
+            int size = 0;
+            for (int index = 0; index < keys.size(); index += 1) {
+                String key = keys.get(index);
+                int hash = spread(key.hashCode());
+                int slot = hash & this.mask;
+                while (this.keys[slot] != null && !(this.hashes[slot] == hash && this.keys[slot].equals(key))) {
+                    slot = (slot + 1) & this.mask;
+                }
+                if (this.keys[slot] != null) {
+                    continue;
+                }
+                this.hashes[slot] = hash;
+                this.keys[slot] = key;
+                this.values[slot] = values.get(index);
+                size += 1;
+            }
+            this.size = size;
+        }
+        
+        private String get(String key) {
+            int hash = spread(key.hashCode());
+            int slot = hash & this.mask;
+            String slotKey;
+            while ((slotKey = this.keys[slot]) != null) {
+                if (this.hashes[slot] == hash && slotKey.equals(key)) {
+                    return this.values[slot];
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return null;
+        }
+        
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
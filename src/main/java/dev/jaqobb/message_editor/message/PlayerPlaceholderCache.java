@@ -0,0 +1,54 @@
+package dev.jaqobb.message_editor.message;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Edited messages with placeholders already set for a single player, kept for a short time as placeholder values may change.
+public final class PlayerPlaceholderCache {
+    
+    private static final int MAXIMUM_SIZE = 256;
+    
+    private final Map<EditedMessage, Entry> entries;
+    
+    public PlayerPlaceholderCache() {
+        this.entries = new LinkedHashMap<EditedMessage, Entry>(16, 0.75F, true) {
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<EditedMessage, Entry> eldest) {
+                return this.size() > MAXIMUM_SIZE;
+            }
+        };
+    }
+    
+    // Edited messages are compared by identity, so entries of messages that are no longer cached are never returned again.
+    public synchronized EditedMessage get(EditedMessage template, long now) {
+        Entry entry = this.entries.get(template);
+        if (entry == null) {
+            return null;
+        }
+        if (now - entry.expiresAt >= 0L) {
+            this.entries.remove(template);
+            return null;
+        }
+        return entry.message;
+    }
+    
+    public synchronized void put(EditedMessage template, EditedMessage message, long expiresAt) {
+        this.entries.put(template, new Entry(message, expiresAt));
+    }
+    
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+    
+    private static final class Entry {
+        
+        private final EditedMessage message;
+        private final long expiresAt;
+        
+        private Entry(EditedMessage message, long expiresAt) {
+            this.message = message;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package dev.jaqobb.message_editor.message.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.jaqobb.message_editor.message.ItemDisplay;
+
+// Edited names and lores of items, shared between players, so items sent over and over again
+// do not have their names and lores matched against message edits each time.
+public final class ItemDisplayCache {
+    
+    // Returned for items whose name and lore are not edited.
+    public static final ItemDisplay<?, ?> UNCHANGED = new ItemDisplay<>(null, null);
+    
+    // Displays are always mapped to displays of the same form. Raw displays read from item tags are mapped to legacy text displays, which are both strings.
+    private final Cache<ItemDisplay<?, ?>, ItemDisplay<?, ?>> displays;
+    
+    public ItemDisplayCache(long maximumSize) {
+        this.displays = maximumSize <= 0L ? null : Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+    
+    public boolean isEnabled() {
+        return this.displays != null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <N, L> ItemDisplay<N, L> get(ItemDisplay<N, L> display) {
+        if (this.displays == null) {
+            return null;
+        }
+        return (ItemDisplay<N, L>) this.displays.getIfPresent(display);
+    }
+    
+    // Displays with placeholders set for a single player are never cached.
+    public <N, L> void put(ItemDisplay<N, L> display, ItemDisplay<N, L> newDisplay) {
+        if (this.displays == null || newDisplay.isPersonal()) {
+            return;
+        }
+        this.displays.put(display, newDisplay);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <N, L> ItemDisplay<N, L> unchanged() {
+        return (ItemDisplay<N, L>) UNCHANGED;
+    }
+    
+    public void invalidateAll() {
+        if (this.displays != null) {
+            this.displays.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package dev.jaqobb.message_editor.message.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import org.bukkit.configuration.ConfigurationSection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+// Separate cache for each message place, bounded by the estimated memory usage of its entries.
+//
+// Caffeine admits new entries based on how often they were requested recently (W-TinyLFU),
+// so messages that are sent only once do not evict the ones that are sent all the time.
+public final class MessagePlaceCache<K, V> {
+    
+    public static final long DEFAULT_MAXIMUM_SIZE = 4096L;
+    public static final long DEFAULT_EXPIRE_AFTER_ACCESS = 900L;
+    
+    private final Cache<K, V>[] caches;
+    
+    // Maximum size is read in kilobytes and expiration time in seconds, first from the message place section and then from the default one.
+    @SuppressWarnings("unchecked")
+    public MessagePlaceCache(ConfigurationSection section, Weigher<? super K, ? super V> weigher) {
+        this.caches = new Cache[MessagePlace.VALUES.length];
+        ConfigurationSection defaultSection = section == null ? null : section.getConfigurationSection("default");
+        for (MessagePlace place : MessagePlace.VALUES) {
+            ConfigurationSection placeSection = section == null ? null : section.getConfigurationSection(getConfigurationKey(place));
+            long maximumSize = getLong(placeSection, defaultSection, "maximum-size", DEFAULT_MAXIMUM_SIZE);
+            long expireAfterAccess = getLong(placeSection, defaultSection, "expire-after-access", DEFAULT_EXPIRE_AFTER_ACCESS);
+            this.caches[place.ordinal()] = Caffeine.newBuilder()
+                .maximumWeight(Math.max(maximumSize, 0L) * 1024L)
+                .weigher(weigher)
+                .expireAfterAccess(Math.max(expireAfterAccess, 0L), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        }
+    }
+    
+    public V get(MessagePlace place, K key) {
+        return this.caches[place.ordinal()].getIfPresent(key);
+    }
+    
+    public void put(MessagePlace place, K key, V value) {
+        this.caches[place.ordinal()].put(key, value);
+    }
+    
+    public void invalidate(MessagePlace place, K key) {
+        this.caches[place.ordinal()].invalidate(key);
+    }
+    
+    // Removes the entry only if it still maps to the given value.
+    public void invalidate(MessagePlace place, K key, V value) {
+        this.caches[place.ordinal()].asMap().remove(key, value);
+    }
+    
+    public void invalidateIf(MessagePlace place, BiPredicate<? super K, ? super V> predicate) {
+        this.caches[place.ordinal()].asMap().entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+    }
+    
+    public void invalidateAll() {
+        for (Cache<K, V> cache : this.caches) {
+            cache.invalidateAll();
+        }
+    }
+    
+    public Set<K> getKeys(MessagePlace place) {
+        return Collections.unmodifiableSet(this.caches[place.ordinal()].asMap().keySet());
+    }
+    
+    public long getSize(MessagePlace place) {
+        return this.caches[place.ordinal()].estimatedSize();
+    }
+    
+    public CacheStats getStats(MessagePlace place) {
+        return this.caches[place.ordinal()].stats();
+    }
+    
+    // Rough estimate of the memory used by the given string, in bytes.
+    public static int estimateSize(String string) {
+        if (string == null) {
+            return 0;
+        }
+        return 40 + string.length() * 2;
+    }
+    
+    public static String getConfigurationKey(MessagePlace place) {
+        return place.name().toLowerCase().replace('_', '-');
+    }
+    
+    private static long getLong(ConfigurationSection section, ConfigurationSection defaultSection, String path, long defaultValue) {
+        if (section != null && section.contains(path)) {
+            return section.getLong(path);
+        }
+        if (defaultSection != null && defaultSection.contains(path)) {
+            return defaultSection.getLong(path);
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,49 @@
+package dev.jaqobb.message_editor.message.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latest component sent for each thing shown to a single player, e.g. entity names or boss bar titles, along with the component it was replaced with.
+//
+// Servers keep sending the same component until it changes, so components are compared by identity
+// and unchanged components are replaced without being converted to JSON or edited again.
+public final class PlayerComponentCache<K> {
+    
+    private final Map<K, Entry> entries;
+    
+    public PlayerComponentCache() {
+        this.entries = new ConcurrentHashMap<>();
+    }
+    
+    // Returns the component the given one was replaced with, which is the same component if it was not edited, or null if the component is not cached.
+    public Object get(K key, Object component) {
+        Entry entry = this.entries.get(key);
+        if (entry == null || entry.component != component) {
+            return null;
+        }
+        return entry.newComponent;
+    }
+    
+    public void put(K key, Object component, Object newComponent) {
+        this.entries.put(key, new Entry(component, newComponent));
+    }
+    
+    public void remove(K key) {
+        this.entries.remove(key);
+    }
+    
+    public void clear() {
+        this.entries.clear();
+    }
+    
+    private static final class Entry {
+        
+        private final Object component;
+        private final Object newComponent;
+        
+        private Entry(Object component, Object newComponent) {
+            this.component = component;
+            this.newComponent = newComponent;
+        }
+    }
+}
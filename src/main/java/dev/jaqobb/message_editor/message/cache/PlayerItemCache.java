@@ -0,0 +1,87 @@
+package dev.jaqobb.message_editor.message.cache;
+
+import org.bukkit.inventory.ItemStack;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+// Items of windows shown to a single player, along with their edited copies, so items that did not change since they were last sent do not have to be edited again.
+//
+// Only the player's inventory and the latest opened window are kept. Entries are only ever returned for items equal to the cached ones,
+// so they never have to be removed when a window changes, only when message edits do.
+public final class PlayerItemCache {
+    
+    private final Map<Integer, Slot[]> windows;
+    
+    public PlayerItemCache() {
+        this.windows = new HashMap<>();
+    }
+    
+    // Returns the slot if it holds an item equal to the given one, or null if the item has to be edited.
+    public synchronized Slot get(int windowId, int slot, ItemStack item) {
+        Slot[] slots = this.windows.get(windowId);
+        if (slots == null || slot < 0 || slot >= slots.length) {
+            return null;
+        }
+        Slot cachedSlot = slots[slot];
+        if (cachedSlot == null || !cachedSlot.item.equals(item)) {
+            return null;
+        }
+        return cachedSlot;
+    }
+    
+    // Starts caching items of the window with the given size. Items already cached for the window are kept,
+    // as all of its items are sent again each time and slots whose items changed are replaced one by one.
+    public synchronized void putWindow(int windowId, int size) {
+        Slot[] slots = this.windows.get(windowId);
+        if (slots != null) {
+            if (slots.length != size) {
+                this.windows.put(windowId, Arrays.copyOf(slots, size));
+            }
+            return;
+        }
+        if (windowId != 0) {
+            Iterator<Integer> iterator = this.windows.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() != 0) {
+                    iterator.remove();
+                }
+            }
+        }
+        this.windows.put(windowId, new Slot[size]);
+    }
+    
+    // Edited item is null if the item is not edited. Items of windows that are not cached are ignored.
+    public synchronized void put(int windowId, int slot, ItemStack item, ItemStack editedItem) {
+        Slot[] slots = this.windows.get(windowId);
+        if (slots == null || slot < 0 || slot >= slots.length) {
+            return;
+        }
+        slots[slot] = item == null ? null : new Slot(item, editedItem);
+    }
+    
+    public synchronized void clear() {
+        this.windows.clear();
+    }
+    
+    public static final class Slot {
+        
+        private final ItemStack item;
+        private final ItemStack editedItem;
+        
+        private Slot(ItemStack item, ItemStack editedItem) {
+            this.item = item;
+            this.editedItem = editedItem;
+        }
+        
+        public ItemStack getItem() {
+            return this.item;
+        }
+        
+        // Null if the item is not edited.
+        public ItemStack getEditedItem() {
+            return this.editedItem;
+        }
+    }
+}
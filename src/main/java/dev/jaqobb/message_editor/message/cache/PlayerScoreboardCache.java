@@ -0,0 +1,78 @@
+package dev.jaqobb.message_editor.message.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Latest state of scoreboard objectives and scores sent to a single player, after their messages were edited.
+//
+// States are all values of the sent packets, so updates that would not change anything on the client can be dropped.
+// Once the cache is full, states of new objectives and scores are not remembered, so their updates are always sent.
+public final class PlayerScoreboardCache {
+    
+    public static final int MAXIMUM_SIZE = 1024;
+    
+    private final Map<String, List<Object>> objectives;
+    private final Map<String, Map<String, List<Object>>> scores;
+    private int size;
+    
+    public PlayerScoreboardCache() {
+        this.objectives = new HashMap<>();
+        this.scores = new HashMap<>();
+        this.size = 0;
+    }
+    
+    // Objectives that are created have no scores yet, even if an objective with the same name existed before.
+    public synchronized void addObjective(String objective, List<Object> state) {
+        this.removeObjective(objective);
+        if (this.size < MAXIMUM_SIZE) {
+            this.objectives.put(objective, state);
+            this.size += 1;
+        }
+    }
+    
+    // Returns whether the objective state differs from the last sent one.
+    public synchronized boolean updateObjective(String objective, List<Object> state) {
+        if (!this.objectives.containsKey(objective)) {
+            if (this.size < MAXIMUM_SIZE) {
+                this.objectives.put(objective, state);
+                this.size += 1;
+            }
+            return true;
+        }
+        return !state.equals(this.objectives.put(objective, state));
+    }
+    
+    public synchronized void removeObjective(String objective) {
+        if (this.objectives.remove(objective) != null) {
+            this.size -= 1;
+        }
+        this.removeScores(objective);
+    }
+    
+    // Returns whether the score state differs from the last sent one.
+    public synchronized boolean updateScore(String objective, String entry, List<Object> state) {
+        Map<String, List<Object>> objectiveScores = this.scores.get(objective);
+        if (objectiveScores == null || !objectiveScores.containsKey(entry)) {
+            if (this.size < MAXIMUM_SIZE) {
+                this.scores.computeIfAbsent(objective, key -> new HashMap<>()).put(entry, state);
+                this.size += 1;
+            }
+            return true;
+        }
+        return !state.equals(objectiveScores.put(entry, state));
+    }
+    
+    // Removes scores of all objectives if the objective is null.
+    public synchronized void removeScores(String objective) {
+        if (objective == null) {
+            this.size = this.objectives.size();
+            this.scores.clear();
+            return;
+        }
+        Map<String, List<Object>> objectiveScores = this.scores.remove(objective);
+        if (objectiveScores != null) {
+            this.size -= objectiveScores.size();
+        }
+    }
+}
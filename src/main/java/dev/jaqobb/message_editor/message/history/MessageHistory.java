@@ -0,0 +1,93 @@
+package dev.jaqobb.message_editor.message.history;
+
+import dev.jaqobb.message_editor.message.MessageData;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Message data of the latest messages sent to each online player, so memory usage is bounded by players times history size.
+//
+// Message ids consist of the message place id, the player's history slot and a sequence number shared by all histories,
+// for example 'SC3-1k2'. Sequence numbers are never reused, so ids of messages of players who left are never found in
+// histories of players who took over their slots.
+public final class MessageHistory {
+    
+    private final int size;
+    private final AtomicLong sequence;
+    private final Map<UUID, PlayerMessageHistory> histories;
+    private PlayerMessageHistory[] slots;
+    
+    public MessageHistory(int size) {
+        this.size = Math.max(size, 1);
+        this.sequence = new AtomicLong();
+        this.histories = new ConcurrentHashMap<>();
+        this.slots = new PlayerMessageHistory[16];
+    }
+    
+    public synchronized void addPlayer(UUID uuid) {
+        if (this.histories.containsKey(uuid)) {
+            return;
+        }
+        int slot = 0;
+        while (slot < this.slots.length && this.slots[slot] != null) {
+            slot += 1;
+        }
+        if (slot == this.slots.length) {
+            this.slots = Arrays.copyOf(this.slots, this.slots.length * 2);
+        }
+        PlayerMessageHistory history = new PlayerMessageHistory(slot, this.size);
+        this.slots[slot] = history;
+        this.histories.put(uuid, history);
+    }
+    
+    public synchronized void removePlayer(UUID uuid) {
+        PlayerMessageHistory history = this.histories.remove(uuid);
+        if (history != null) {
+            this.slots[history.getSlot()] = null;
+        }
+    }
+    
+    // Returns null if the player has no history, for example when they are still logging in.
+    public MessageData addMessage(UUID uuid, MessagePlace place, String message, boolean json) {
+        PlayerMessageHistory history = this.histories.get(uuid);
+        if (history == null) {
+            return null;
+        }
+        String id = place.getId() + Integer.toString(history.getSlot(), Character.MAX_RADIX) + '-' + Long.toString(this.sequence.getAndIncrement(), Character.MAX_RADIX);
+        MessageData data = new MessageData(id, place, message, json);
+        history.add(data);
+        return data;
+    }
+    
+    public MessageData findMessage(String id) {
+        int separator = id.lastIndexOf('-');
+        if (separator == -1) {
+            return null;
+        }
+        // Message place ids consist of upper case letters only, while slots are written in lower case.
+        int slotStart = 0;
+        while (slotStart < separator && Character.isUpperCase(id.charAt(slotStart))) {
+            slotStart += 1;
+        }
+        int slot;
+        try {
+            slot = Integer.parseInt(id.substring(slotStart, separator), Character.MAX_RADIX);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+        PlayerMessageHistory history;
+        synchronized (this) {
+            if (slot < 0 || slot >= this.slots.length) {
+                return null;
+            }
+            history = this.slots[slot];
+        }
+        if (history == null) {
+            return null;
+        }
+        return history.find(id);
+    }
+}
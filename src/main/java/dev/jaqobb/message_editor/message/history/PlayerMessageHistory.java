@@ -0,0 +1,38 @@
+package dev.jaqobb.message_editor.message.history;
+
+import dev.jaqobb.message_editor.message.MessageData;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fixed-size ring buffer of message data of the latest messages sent to a single player.
+public final class PlayerMessageHistory {
+    
+    private final int slot;
+    private final AtomicReferenceArray<MessageData> entries;
+    private final AtomicInteger position;
+    
+    PlayerMessageHistory(int slot, int size) {
+        this.slot = slot;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.position = new AtomicInteger();
+    }
+    
+    public int getSlot() {
+        return this.slot;
+    }
+    
+    void add(MessageData data) {
+        int index = Math.floorMod(this.position.getAndIncrement(), this.entries.length());
+        this.entries.set(index, data);
+    }
+    
+    MessageData find(String id) {
+        for (int index = 0; index < this.entries.length(); index += 1) {
+            MessageData data = this.entries.get(index);
+            if (data != null && data.getId().equals(id)) {
+                return data;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package dev.jaqobb.message_editor.message.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+// Aho-Corasick automaton reporting which of the registered literals occur in a text in a single pass over it.
+public final class LiteralAutomaton {
+    
+    private static final int[] NO_OUTPUTS = new int[0];
+    
+    private final char[][] transitionCharacters;
+    private final int[][] transitionTargets;
+    private final int[] failures;
+    private final int[][] outputs;
+    
+    // Literal at the given index is reported with the id at the same index.
+    public LiteralAutomaton(List<String> literals, int[] ids) {
+        List<char[]> characters = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<int[]> nodeOutputs = new ArrayList<>();
+        characters.add(new char[0]);
+        targets.add(new int[0]);
+        nodeOutputs.add(NO_OUTPUTS);
+        for (int index = 0; index < literals.size(); index += 1) {
+            String literal = literals.get(index);
+            int node = 0;
+            for (int characterIndex = 0; characterIndex < literal.length(); characterIndex += 1) {
+                char character = literal.charAt(characterIndex);
+                char[] nodeCharacters = characters.get(node);
+                int position = Arrays.binarySearch(nodeCharacters, character);
+                if (position >= 0) {
+                    node = targets.get(node)[position];
+                    continue;
+                }
+                int insertion = -position - 1;
+                int child = characters.size();
+                characters.add(new char[0]);
+                targets.add(new int[0]);
+                nodeOutputs.add(NO_OUTPUTS);
+                characters.set(node, insert(nodeCharacters, insertion, character));
+                targets.set(node, insert(targets.get(node), insertion, child));
+                node = child;
+            }
+            nodeOutputs.set(node, append(nodeOutputs.get(node), ids[index]));
+        }
+        int nodes = characters.size();
+        this.transitionCharacters = characters.toArray(new char[nodes][]);
+        this.transitionTargets = targets.toArray(new int[nodes][]);
+        this.outputs = nodeOutputs.toArray(new int[nodes][]);
+        this.failures = new int[nodes];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : this.transitionTargets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            char[] nodeCharacters = this.transitionCharacters[node];
+            int[] nodeTargets = this.transitionTargets[node];
+            for (int index = 0; index < nodeCharacters.length; index += 1) {
+                int child = nodeTargets[index];
+                int failure = this.failures[node];
+                int next = this.transition(failure, nodeCharacters[index]);
+                while (next == -1 && failure != 0) {
+                    failure = this.failures[failure];
+                    next = this.transition(failure, nodeCharacters[index]);
+                }
+                this.failures[child] = next == -1 || next == child ? 0 : next;
+                // Outputs of the failure node are always complete here as nodes are visited in breadth-first order.
+                for (int id : this.outputs[this.failures[child]]) {
+                    this.outputs[child] = append(this.outputs[child], id);
+                }
+                queue.add(child);
+            }
+        }
+    }
+    
+    public boolean isEmpty() {
+        return this.transitionCharacters[0].length == 0;
+    }
+    
+    // Sets bits of ids of all literals occurring in the given text.
+    public void find(String text, long[] found) {
+        int node = 0;
+        for (int index = 0; index < text.length(); index += 1) {
+            char character = text.charAt(index);
+            int next = this.transition(node, character);
+            while (next == -1 && node != 0) {
+                node = this.failures[node];
+                next = this.transition(node, character);
+            }
+            node = next == -1 ? 0 : next;
+            for (int id : this.outputs[node]) {
+                found[id >>> 6] |= 1L << id;
+            }
+        }
+    }
+    
+    private int transition(int node, char character) {
+        int position = Arrays.binarySearch(this.transitionCharacters[node], character);
+        return position < 0 ? -1 : this.transitionTargets[node][position];
+    }
+    
+    private static char[] insert(char[] array, int index, char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+    
+    private static int[] insert(int[] array, int index, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+    
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.jaqobb.message_editor.message.index;
+
+import com.comphenix.protocol.utility.MinecraftVersion;
+import dev.jaqobb.message_editor.message.MessageEdit;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+// Message edits split by message place, with a literal prefilter in front of the regular expressions.
+// Edits are tried in the order they were given in, so the first matching edit still wins.
+public final class MessageEditIndex {
+    
+    public static final MessageEditIndex EMPTY = new MessageEditIndex(Collections.emptyList());
+    
+    private final Bucket[] buckets;
+    
+    public MessageEditIndex(List<MessageEdit> edits) {
+        this.buckets = new Bucket[MessagePlace.VALUES.length];
+        for (MessagePlace place : MessagePlace.VALUES) {
+            List<MessageEdit> placeEdits = new ArrayList<>();
+            for (MessageEdit edit : edits) {
+                MessagePlace editPlace = normalizePlace(edit.getMessageBeforePlace());
+                if (editPlace == null || editPlace == place) {
+                    placeEdits.add(edit);
+                }
+            }
+            this.buckets[place.ordinal()] = new Bucket(placeEdits);
+        }
+    }
+    
+    public Map.Entry<MessageEdit, Matcher> findEdit(String message, MessagePlace place) {
+        return this.buckets[place.ordinal()].findEdit(message);
+    }
+    
+    // Game chat edits are applied to system chat messages on 1.19+.
+    private static MessagePlace normalizePlace(MessagePlace place) {
+        if (place == MessagePlace.GAME_CHAT && MinecraftVersion.WILD_UPDATE.atOrAbove()) {
+            return MessagePlace.SYSTEM_CHAT;
+        }
+        return place;
+    }
+    
+    private static final class Bucket {
+        
+        private final MessageEdit[] edits;
+        private final boolean[] prefiltered;
+        private final LiteralAutomaton automaton;
+        private final boolean allPrefiltered;
+        
+        private Bucket(List<MessageEdit> edits) {
+            this.edits = edits.toArray(new MessageEdit[0]);
+            this.prefiltered = new boolean[this.edits.length];
+            List<String> literals = new ArrayList<>();
+            int[] ids = new int[this.edits.length];
+            boolean allPrefiltered = true;
+            for (int index = 0; index < this.edits.length; index += 1) {
+                String literal = PatternLiterals.findRequiredLiteral(this.edits[index].getMessageBeforePattern());
+                if (literal == null) {
+                    allPrefiltered = false;
+                    continue;
+                }
+                ids[literals.size()] = index;
+                literals.add(literal);
+                this.prefiltered[index] = true;
+            }
+            this.automaton = new LiteralAutomaton(literals, ids);
+            this.allPrefiltered = allPrefiltered;
+        }
+        
+        private Map.Entry<MessageEdit, Matcher> findEdit(String message) {
+            if (this.edits.length == 0) {
+                return null;
+            }
+            long[] found = null;
+            if (!this.automaton.isEmpty()) {
+                found = new long[(this.edits.length + 63) >>> 6];
+                this.automaton.find(message, found);
+                if (this.allPrefiltered && isEmpty(found)) {
+                    return null;
+                }
+            }
+            for (int index = 0; index < this.edits.length; index += 1) {
+                if (this.prefiltered[index] && (found == null || (found[index >>> 6] & (1L << index)) == 0L)) {
+                    continue;
+                }
+                MessageEdit edit = this.edits[index];
+                Matcher matcher = edit.getMatcher(message);
+                if (matcher != null) {
+                    return new AbstractMap.SimpleEntry<>(edit, matcher);
+                }
+            }
+            return null;
+        }
+        
+        private static boolean isEmpty(long[] bits) {
+            for (long word : bits) {
+                if (word != 0L) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
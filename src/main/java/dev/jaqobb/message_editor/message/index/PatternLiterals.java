@@ -0,0 +1,249 @@
+package dev.jaqobb.message_editor.message.index;
+
+import java.util.regex.Pattern;
+
+public final class PatternLiterals {
+    
+    private PatternLiterals() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+    
+    // Returns the longest literal that every string fully matching the pattern has to contain, or null if no such literal could be found.
+    // The scan is conservative: anything it does not fully understand ends the current literal, so the returned literal may be shorter than
+    // the ideal one, but it is never a literal that a matching string could lack.
+    public static String findRequiredLiteral(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return null;
+        }
+        String regex = pattern.pattern();
+        int length = regex.length();
+        StringBuilder run = new StringBuilder();
+        String longest = null;
+        boolean lastAtomLiteral = false;
+        int index = 0;
+        while (index < length) {
+            char character = regex.charAt(index);
+            if (character == '\\') {
+                if (index + 1 >= length) {
+                    return null;
+                }
+                char escaped = regex.charAt(index + 1);
+                if (escaped == 'Q') {
+                    int end = regex.indexOf("\\E", index + 2);
+                    String quoted = end == -1 ? regex.substring(index + 2) : regex.substring(index + 2, end);
+                    if (!quoted.isEmpty()) {
+                        run.append(quoted);
+                        lastAtomLiteral = true;
+                    }
+                    index = end == -1 ? length : end + 2;
+                    continue;
+                }
+                if (escaped == 'E') {
+                    index += 2;
+                    continue;
+                }
+                if (!Character.isLetterOrDigit(escaped)) {
+                    run.append(escaped);
+                    lastAtomLiteral = true;
+                    index += 2;
+                    continue;
+                }
+                longest = longest(longest, run);
+                run.setLength(0);
+                lastAtomLiteral = false;
+                index = skipEscape(regex, index);
+                continue;
+            }
+            if (character == '[') {
+                longest = longest(longest, run);
+                run.setLength(0);
+                lastAtomLiteral = false;
+                index = skipCharacterClass(regex, index);
+                continue;
+            }
+            if (character == '(') {
+                if (index + 2 < length && regex.charAt(index + 1) == '?' && isFlag(regex.charAt(index + 2))) {
+                    // Inline flags, such as (?i) or (?x), change how the rest of the pattern is interpreted.
+                    return null;
+                }
+                longest = longest(longest, run);
+                run.setLength(0);
+                lastAtomLiteral = false;
+                index = skipGroup(regex, index);
+                if (index == -1) {
+                    return null;
+                }
+                continue;
+            }
+            if (character == '|') {
+                return null;
+            }
+            if (character == '?' || character == '*' || character == '+' || character == '{') {
+                boolean optional = character != '+';
+                if (character == '{') {
+                    int end = regex.indexOf('}', index);
+                    if (end == -1) {
+                        return null;
+                    }
+                    String minimum = regex.substring(index + 1, end);
+                    int comma = minimum.indexOf(',');
+                    if (comma != -1) {
+                        minimum = minimum.substring(0, comma);
+                    }
+                    optional = minimum.trim().equals("0");
+                    index = end + 1;
+                } else {
+                    index += 1;
+                }
+                if (lastAtomLiteral && optional) {
+                    removeLastCodePoint(run);
+                }
+                longest = longest(longest, run);
+                run.setLength(0);
+                lastAtomLiteral = false;
+                if (index < length && (regex.charAt(index) == '?' || regex.charAt(index) == '+')) {
+                    index += 1;
+                }
+                continue;
+            }
+            if (character == '.' || character == '^' || character == '$' || character == ')' || character == ']' || character == '}') {
+                longest = longest(longest, run);
+                run.setLength(0);
+                lastAtomLiteral = false;
+                index += 1;
+                continue;
+            }
+            run.append(character);
+            lastAtomLiteral = true;
+            index += 1;
+        }
+        return longest(longest, run);
+    }
+    
+    private static String longest(String longest, StringBuilder run) {
+        if (run.length() == 0 || (longest != null && longest.length() >= run.length())) {
+            return longest;
+        }
+        return run.toString();
+    }
+    
+    private static void removeLastCodePoint(StringBuilder run) {
+        int length = run.length();
+        if (length == 0) {
+            return;
+        }
+        if (length > 1 && Character.isLowSurrogate(run.charAt(length - 1)) && Character.isHighSurrogate(run.charAt(length - 2))) {
+            run.setLength(length - 2);
+            return;
+        }
+        run.setLength(length - 1);
+    }
+    
+    private static boolean isFlag(char character) {
+        return character == '-' || "idmsuxU".indexOf(character) != -1;
+    }
+    
+    // Returns the index right after the escape sequence starting at the given index.
+    private static int skipEscape(String regex, int index) {
+        int length = regex.length();
+        char escaped = regex.charAt(index + 1);
+        index += 2;
+        if (index < length && regex.charAt(index) == '{' && (escaped == 'p' || escaped == 'P' || escaped == 'x' || escaped == 'N')) {
+            int end = regex.indexOf('}', index);
+            return end == -1 ? length : end + 1;
+        }
+        if (escaped == 'p' || escaped == 'P') {
+            return Math.min(index + 1, length);
+        }
+        if (escaped == 'k' && index < length && regex.charAt(index) == '<') {
+            int end = regex.indexOf('>', index);
+            return end == -1 ? length : end + 1;
+        }
+        if (escaped == 'x') {
+            return Math.min(index + 2, length);
+        }
+        if (escaped == 'u') {
+            return Math.min(index + 4, length);
+        }
+        if (escaped == 'c') {
+            return Math.min(index + 1, length);
+        }
+        if (Character.isDigit(escaped)) {
+            // Octal escapes and back references may consume the following digits, so skip all of them.
+            while (index < length && Character.isDigit(regex.charAt(index))) {
+                index += 1;
+            }
+        }
+        return index;
+    }
+    
+    // Returns the index right after the character class starting at the given index.
+    private static int skipCharacterClass(String regex, int index) {
+        int length = regex.length();
+        int depth = 0;
+        while (index < length) {
+            char character = regex.charAt(index);
+            if (character == '\\') {
+                if (index + 1 < length && regex.charAt(index + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", index + 2);
+                    index = end == -1 ? length : end + 2;
+                    continue;
+                }
+                index = skipEscape(regex, index);
+                continue;
+            }
+            if (character == '[') {
+                depth += 1;
+                index += 1;
+                if (index < length && regex.charAt(index) == '^') {
+                    index += 1;
+                }
+                // A closing bracket right after the opening one is a literal.
+                if (index < length && regex.charAt(index) == ']') {
+                    index += 1;
+                }
+                continue;
+            }
+            index += 1;
+            if (character == ']') {
+                depth -= 1;
+                if (depth == 0) {
+                    return index;
+                }
+            }
+        }
+        return length;
+    }
+    
+    // Returns the index right after the group starting at the given index, or -1 if the group is not closed.
+    private static int skipGroup(String regex, int index) {
+        int length = regex.length();
+        int depth = 0;
+        while (index < length) {
+            char character = regex.charAt(index);
+            if (character == '\\') {
+                if (index + 1 < length && regex.charAt(index + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", index + 2);
+                    index = end == -1 ? length : end + 2;
+                    continue;
+                }
+                index = skipEscape(regex, index);
+                continue;
+            }
+            if (character == '[') {
+                index = skipCharacterClass(regex, index);
+                continue;
+            }
+            index += 1;
+            if (character == '(') {
+                depth += 1;
+            } else if (character == ')') {
+                depth -= 1;
+                if (depth == 0) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,148 @@
+package dev.jaqobb.message_editor.util;
+
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import com.comphenix.protocol.wrappers.WrappedDataValue;
+import com.comphenix.protocol.wrappers.WrappedWatchableObject;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.List;
+import java.util.Optional;
+
+public final class EntityDataUtils {
+    
+    public static final int CUSTOM_NAME_INDEX = 2;
+    
+    // Minecraft data values are records whose first component is their index. It is looked up by type as accessor names are not the same on all servers.
+    private static final ClassValue<Method> INDEX_ACCESSORS = new ClassValue<Method>() {
+        
+        @Override
+        protected Method computeValue(Class<?> type) {
+            if (!type.isRecord()) {
+                return null;
+            }
+            RecordComponent[] components = type.getRecordComponents();
+            if (components.length == 0 || components[0].getType() != int.class) {
+                return null;
+            }
+            try {
+                Method accessor = components[0].getAccessor();
+                accessor.setAccessible(true);
+                return accessor;
+            } catch (RuntimeException exception) {
+                return null;
+            }
+        }
+    };
+    
+    private EntityDataUtils() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+    
+    // Most entity metadata packets do not change custom names, and are rejected without converting any of their data values where possible.
+    public static boolean hasCustomName(PacketContainer packet) {
+        if (!MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+            List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
+            if (objects == null) {
+                return false;
+            }
+            for (WrappedWatchableObject object : objects) {
+                if (object.getIndex() == CUSTOM_NAME_INDEX) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        List<?> dataValues = packet.getModifier().<List<?>>withType(List.class).readSafely(0);
+        return dataValues != null && containsIndex(dataValues, CUSTOM_NAME_INDEX);
+    }
+    
+    // Checks Minecraft data values directly, and only wraps them if their index cannot be read otherwise.
+    private static boolean containsIndex(List<?> dataValues, int index) {
+        for (Object dataValue : dataValues) {
+            if (getIndex(dataValue) == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static int getIndex(Object dataValue) {
+        Method indexAccessor = INDEX_ACCESSORS.get(dataValue.getClass());
+        if (indexAccessor != null) {
+            try {
+                return (int) indexAccessor.invoke(dataValue);
+            } catch (ReflectiveOperationException exception) {
+                // Falls back to ProtocolLib below.
+            }
+        }
+        return new WrappedDataValue(dataValue).getIndex();
+    }
+    
+    // Returns the Minecraft component of the custom name, or null if the packet does not set one.
+    public static Object getCustomName(PacketContainer packet) {
+        Object value = null;
+        if (!MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+            List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
+            if (objects == null) {
+                return null;
+            }
+            for (WrappedWatchableObject object : objects) {
+                if (object.getIndex() == CUSTOM_NAME_INDEX) {
+                    value = object.getValue();
+                    break;
+                }
+            }
+        } else {
+            List<WrappedDataValue> dataValues = packet.getDataValueCollectionModifier().readSafely(0);
+            if (dataValues == null) {
+                return null;
+            }
+            for (WrappedDataValue dataValue : dataValues) {
+                if (dataValue.getIndex() == CUSTOM_NAME_INDEX) {
+                    value = dataValue.getValue();
+                    break;
+                }
+            }
+        }
+        if (!(value instanceof Optional)) {
+            return null;
+        }
+        Optional<?> name = (Optional<?>) value;
+        if (!name.isPresent()) {
+            return null;
+        }
+        Object nameValue = name.get();
+        if (nameValue instanceof WrappedChatComponent) {
+            return ((WrappedChatComponent) nameValue).getHandle();
+        }
+        return nameValue;
+    }
+    
+    public static void setCustomName(PacketContainer packet, Object name) {
+        if (!MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+            List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
+            if (objects == null) {
+                return;
+            }
+            for (WrappedWatchableObject object : objects) {
+                if (object.getIndex() == CUSTOM_NAME_INDEX) {
+                    object.setValue(Optional.of(name));
+                    return;
+                }
+            }
+            return;
+        }
+        List<WrappedDataValue> dataValues = packet.getDataValueCollectionModifier().readSafely(0);
+        if (dataValues == null) {
+            return;
+        }
+        for (WrappedDataValue dataValue : dataValues) {
+            if (dataValue.getIndex() == CUSTOM_NAME_INDEX) {
+                dataValue.setValue(Optional.of(name));
+                return;
+            }
+        }
+    }
+}
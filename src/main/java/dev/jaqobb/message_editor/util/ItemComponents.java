@@ -0,0 +1,147 @@
+package dev.jaqobb.message_editor.util;
+
+import com.comphenix.protocol.utility.MinecraftReflection;
+import org.bukkit.inventory.ItemStack;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Reads and writes item names and lores directly as data components (1.20.5+), without creating item meta.
+//
+// Names and lores are kept as Minecraft components, and only converted to legacy text, the same way item meta does it, when they have to be edited.
+// Data components are looked up by their Mojang names, so servers that do not use them fall back to item meta.
+public final class ItemComponents {
+    
+    private static final boolean SUPPORTED;
+    private static final Object CUSTOM_NAME;
+    private static final Object LORE;
+    private static final Method GET;
+    private static final Method SET;
+    private static final Constructor<?> LORE_CONSTRUCTOR;
+    private static final Method LORE_LINES;
+    private static final Method FROM_COMPONENT;
+    private static final Method FROM_STRING;
+    
+    static {
+        boolean supported;
+        Object customName = null;
+        Object lore = null;
+        Method get = null;
+        Method set = null;
+        Constructor<?> loreConstructor = null;
+        Method loreLines = null;
+        Method fromComponent = null;
+        Method fromString = null;
+        try {
+            Class<?> dataComponentsClass = Class.forName("net.minecraft.core.component.DataComponents");
+            Class<?> dataComponentTypeClass = Class.forName("net.minecraft.core.component.DataComponentType");
+            Class<?> itemLoreClass = Class.forName("net.minecraft.world.item.component.ItemLore");
+            Class<?> itemStackClass = MinecraftReflection.getItemStackClass();
+            Class<?> componentClass = MinecraftReflection.getIChatBaseComponentClass();
+            Class<?> chatMessageClass = MinecraftReflection.getCraftBukkitClass("util.CraftChatMessage");
+            Field customNameField = dataComponentsClass.getField("CUSTOM_NAME");
+            Field loreField = dataComponentsClass.getField("LORE");
+            customName = customNameField.get(null);
+            lore = loreField.get(null);
+            get = itemStackClass.getMethod("get", dataComponentTypeClass);
+            set = itemStackClass.getMethod("set", dataComponentTypeClass, Object.class);
+            loreConstructor = itemLoreClass.getConstructor(List.class);
+            loreLines = itemLoreClass.getMethod("lines");
+            fromComponent = chatMessageClass.getMethod("fromComponent", componentClass);
+            fromString = chatMessageClass.getMethod("fromString", String.class, boolean.class);
+            supported = true;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            supported = false;
+        }
+        SUPPORTED = supported;
+        CUSTOM_NAME = customName;
+        LORE = lore;
+        GET = get;
+        SET = set;
+        LORE_CONSTRUCTOR = loreConstructor;
+        LORE_LINES = loreLines;
+        FROM_COMPONENT = fromComponent;
+        FROM_STRING = fromString;
+    }
+    
+    private ItemComponents() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+    
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+    
+    // Items read from packets are backed by Minecraft items, so this does not copy them.
+    public static Object getHandle(ItemStack item) {
+        return MinecraftReflection.getMinecraftItemStack(item);
+    }
+    
+    // Returns the custom name component, or null if the item does not have one.
+    public static Object getName(Object handle) {
+        return invoke(GET, handle, CUSTOM_NAME);
+    }
+    
+    public static void setName(Object handle, Object name) {
+        invoke(SET, handle, CUSTOM_NAME, name);
+    }
+    
+    // Returns the lore component, or null if the item does not have any lore lines.
+    public static Object getLore(Object handle) {
+        Object lore = invoke(GET, handle, LORE);
+        if (lore == null || getLoreLines(lore).isEmpty()) {
+            return null;
+        }
+        return lore;
+    }
+    
+    public static void setLore(Object handle, Object lore) {
+        invoke(SET, handle, LORE, lore);
+    }
+    
+    public static String toLegacyText(Object component) {
+        return (String) invoke(FROM_COMPONENT, null, component);
+    }
+    
+    // New lines are not kept, just like item meta does not keep them in names and lore lines.
+    public static Object fromLegacyText(String text) {
+        return ((Object[]) invoke(FROM_STRING, null, text, false))[0];
+    }
+    
+    public static List<String> toLegacyLore(Object lore) {
+        List<?> lines = getLoreLines(lore);
+        List<String> legacyLines = new ArrayList<>(lines.size());
+        for (Object line : lines) {
+            legacyLines.add(toLegacyText(line));
+        }
+        return legacyLines;
+    }
+    
+    public static Object fromLegacyLore(List<String> legacyLines) {
+        List<Object> lines = new ArrayList<>(legacyLines.size());
+        for (String legacyLine : legacyLines) {
+            lines.add(fromLegacyText(legacyLine));
+        }
+        try {
+            return LORE_CONSTRUCTOR.newInstance(Collections.unmodifiableList(lines));
+        } catch (ReflectiveOperationException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+    
+    private static List<?> getLoreLines(Object lore) {
+        return (List<?>) invoke(LORE_LINES, lore);
+    }
+    
+    private static Object invoke(Method method, Object object, Object... arguments) {
+        try {
+            return method.invoke(object, arguments);
+        } catch (IllegalAccessException | InvocationTargetException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+}
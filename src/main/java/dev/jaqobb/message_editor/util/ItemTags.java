@@ -0,0 +1,48 @@
+package dev.jaqobb.message_editor.util;
+
+import com.comphenix.protocol.wrappers.nbt.NbtBase;
+import com.comphenix.protocol.wrappers.nbt.NbtCompound;
+import com.comphenix.protocol.wrappers.nbt.NbtFactory;
+import com.comphenix.protocol.wrappers.nbt.NbtList;
+import com.comphenix.protocol.wrappers.nbt.NbtType;
+import com.comphenix.protocol.wrappers.nbt.NbtWrapper;
+import dev.jaqobb.message_editor.message.ItemDisplay;
+import org.bukkit.inventory.ItemStack;
+import java.util.ArrayList;
+import java.util.List;
+
+// Item names and lores read directly from item tags, in which they are stored before 1.20.5.
+// Unlike item meta, which copies and parses the whole tag, nothing is copied nor parsed.
+public final class ItemTags {
+    
+    private ItemTags() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+    
+    // Returns the name and lore as they are stored in the tag, or null if the tag cannot be read.
+    public static ItemDisplay<String, List<String>> getRawDisplay(ItemStack item) {
+        try {
+            NbtWrapper<?> tag = NbtFactory.fromItemOptional(item).orElse(null);
+            if (tag == null || tag.getType() != NbtType.TAG_COMPOUND) {
+                return new ItemDisplay<>(null, null);
+            }
+            NbtBase<?> display = ((NbtCompound) tag).getValue("display");
+            if (display == null || display.getType() != NbtType.TAG_COMPOUND) {
+                return new ItemDisplay<>(null, null);
+            }
+            NbtBase<?> name = ((NbtCompound) display).getValue("Name");
+            NbtBase<?> lore = ((NbtCompound) display).getValue("Lore");
+            String rawName = name != null && name.getType() == NbtType.TAG_STRING ? (String) name.getValue() : null;
+            List<String> rawLore = null;
+            if (lore != null && lore.getType() == NbtType.TAG_LIST) {
+                rawLore = new ArrayList<>();
+                for (Object line : (NbtList<?>) lore) {
+                    rawLore.add(String.valueOf(line));
+                }
+            }
+            return new ItemDisplay<>(rawName, rawLore);
+        } catch (RuntimeException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package dev.jaqobb.message_editor.util;
+
+import java.util.Arrays;
+
+public final class JsonClassifier {
+    
+    private JsonClassifier() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+    
+    // Returns whether the whole message is a single JSON object, array or string, as chat components are.
+    // The message is checked in a single pass without building any tree, and is as strict as Gson's non-lenient reader.
+    public static boolean isJson(String message) {
+        int length = message.length();
+        int index = skipWhitespace(message, 0);
+        if (index == length) {
+            return false;
+        }
+        char first = message.charAt(index);
+        if (first != '{' && first != '[' && first != '"') {
+            return false;
+        }
+        // Bit set for each open container that is an object, unset if it is an array.
+        long containers = 0L;
+        long[] deepContainers = null;
+        int depth = 0;
+        while (true) {
+            // A value is expected at the current index.
+            if (index == length) {
+                return false;
+            }
+            char character = message.charAt(index);
+            if (character == '{' || character == '[') {
+                boolean object = character == '{';
+                if (depth < 64) {
+                    if (object) {
+                        containers |= 1L << depth;
+                    } else {
+                        containers &= ~(1L << depth);
+                    }
+                } else {
+                    int deepDepth = depth - 64;
+                    if (deepContainers == null) {
+                        deepContainers = new long[1];
+                    } else if ((deepDepth >>> 6) >= deepContainers.length) {
+                        deepContainers = Arrays.copyOf(deepContainers, deepContainers.length * 2);
+                    }
+                    if (object) {
+                        deepContainers[deepDepth >>> 6] |= 1L << deepDepth;
+                    } else {
+                        deepContainers[deepDepth >>> 6] &= ~(1L << deepDepth);
+                    }
+                }
+                depth += 1;
+                index = skipWhitespace(message, index + 1);
+                if (index == length) {
+                    return false;
+                }
+                char next = message.charAt(index);
+                if (next == (object ? '}' : ']')) {
+                    depth -= 1;
+                    index += 1;
+                } else if (object) {
+                    index = skipKey(message, index);
+                    if (index == -1) {
+                        return false;
+                    }
+                    continue;
+                } else {
+                    continue;
+                }
+            } else if (character == '"') {
+                index = skipString(message, index);
+            } else if (character == 't' || character == 'T') {
+                index = skipLiteral(message, index, "true");
+            } else if (character == 'f' || character == 'F') {
+                index = skipLiteral(message, index, "false");
+            } else if (character == 'n' || character == 'N') {
+                index = skipLiteral(message, index, "null");
+            } else if (character == '-' || (character >= '0' && character <= '9')) {
+                index = skipNumber(message, index);
+            } else {
+                return false;
+            }
+            if (index == -1) {
+                return false;
+            }
+            // A value has just ended, so either the message or the current container has to end, or another value has to follow.
+            boolean nextValue = false;
+            while (!nextValue) {
+                index = skipWhitespace(message, index);
+                if (depth == 0) {
+                    return index == length;
+                }
+                if (index == length) {
+                    return false;
+                }
+                int current = depth - 1;
+                boolean object = current < 64 ? (containers & (1L << current)) != 0L : (deepContainers[(current - 64) >>> 6] & (1L << (current - 64))) != 0L;
+                char delimiter = message.charAt(index);
+                if (delimiter == ',') {
+                    index = skipWhitespace(message, index + 1);
+                    if (object) {
+                        index = skipKey(message, index);
+                        if (index == -1) {
+                            return false;
+                        }
+                    }
+                    nextValue = true;
+                } else if (delimiter == (object ? '}' : ']')) {
+                    depth -= 1;
+                    index += 1;
+                } else {
+                    return false;
+                }
+            }
+        }
+    }
+    
+    private static int skipWhitespace(String message, int index) {
+        int length = message.length();
+        while (index < length) {
+            char character = message.charAt(index);
+            if (character != ' ' && character != '\t' && character != '\n' && character != '\r') {
+                break;
+            }
+            index += 1;
+        }
+        return index;
+    }
+    
+    // Skips an object key along with the colon after it. Returns -1 if there is no valid key.
+    private static int skipKey(String message, int index) {
+        if (index == message.length() || message.charAt(index) != '"') {
+            return -1;
+        }
+        index = skipString(message, index);
+        if (index == -1) {
+            return -1;
+        }
+        index = skipWhitespace(message, index);
+        if (index == message.length() || message.charAt(index) != ':') {
+            return -1;
+        }
+        return skipWhitespace(message, index + 1);
+    }
+    
+    private static int skipString(String message, int index) {
+        int length = message.length();
+        index += 1;
+        while (index < length) {
+            char character = message.charAt(index);
+            if (character == '"') {
+                return index + 1;
+            }
+            if (character != '\\') {
+                index += 1;
+                continue;
+            }
+            if (index + 1 == length) {
+                return -1;
+            }
+            char escaped = message.charAt(index + 1);
+            if (escaped == 'u') {
+                if (index + 6 > length) {
+                    return -1;
+                }
+                for (int hexIndex = index + 2; hexIndex < index + 6; hexIndex += 1) {
+                    if (Character.digit(message.charAt(hexIndex), 16) == -1) {
+                        return -1;
+                    }
+                }
+                index += 6;
+                continue;
+            }
+            // Gson accepts a few more escapes than JSON does.
+            if ("\"\\/bfnrt'\n".indexOf(escaped) == -1) {
+                return -1;
+            }
+            index += 2;
+        }
+        return -1;
+    }
+    
+    // Gson reads each character of literals in either case, e.g. 'True' or 'nULL'.
+    private static int skipLiteral(String message, int index, String literal) {
+        if (!message.regionMatches(true, index, literal, 0, literal.length())) {
+            return -1;
+        }
+        return index + literal.length();
+    }
+    
+    private static int skipNumber(String message, int index) {
+        int length = message.length();
+        if (message.charAt(index) == '-') {
+            index += 1;
+        }
+        if (index == length) {
+            return -1;
+        }
+        char character = message.charAt(index);
+        if (character == '0') {
+            index += 1;
+        } else if (character >= '1' && character <= '9') {
+            index = skipDigits(message, index);
+        } else {
+            return -1;
+        }
+        if (index < length && message.charAt(index) == '.') {
+            int fractionStart = index + 1;
+            index = skipDigits(message, fractionStart);
+            if (index == fractionStart) {
+                return -1;
+            }
+        }
+        if (index < length && (message.charAt(index) == 'e' || message.charAt(index) == 'E')) {
+            index += 1;
+            if (index < length && (message.charAt(index) == '+' || message.charAt(index) == '-')) {
+                index += 1;
+            }
+            int exponentStart = index;
+            index = skipDigits(message, exponentStart);
+            if (index == exponentStart) {
+                return -1;
+            }
+        }
+        return index;
+    }
+    
+    private static int skipDigits(String message, int index) {
+        int length = message.length();
+        while (index < length && message.charAt(index) >= '0' && message.charAt(index) <= '9') {
+            index += 1;
+        }
+        return index;
+    }
+}
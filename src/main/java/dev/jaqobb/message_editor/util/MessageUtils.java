@@ -5,9 +5,7 @@ import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import com.cryptomorin.xseries.XSound;
-import com.google.gson.JsonParseException;
-import com.google.gson.internal.Streams;
-import com.google.gson.stream.JsonReader;
+import dev.jaqobb.message_editor.message.MessageOutput;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
@@ -17,7 +15,6 @@ import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.chat.ComponentSerializer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
-import java.io.StringReader;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
@@ -77,6 +74,22 @@ public final class MessageUtils {
         return translate(MESSAGE_PREFIX + message);
     }
     
+    // Matches the same placeholders as PlaceholderAPI does: text between two percent signs.
+    public static boolean containsPlaceholders(String message) {
+        int start = message.indexOf('%');
+        while (start != -1) {
+            int end = message.indexOf('%', start + 1);
+            if (end == -1) {
+                return false;
+            }
+            if (end > start + 1) {
+                return true;
+            }
+            start = end;
+        }
+        return false;
+    }
+    
     public static void sendSuccessSound(Player recipient) {
         recipient.playSound(recipient.getLocation(), XSound.ENTITY_EXPERIENCE_ORB_PICKUP.parseSound(), 1.0F, 1.0F);
     }
@@ -179,26 +192,30 @@ public final class MessageUtils {
     public static BaseComponent[] toBaseComponents(String message) {
         TextComponent finalComponent = new TextComponent();
         TextComponent component = new TextComponent();
+        // Text of the current component is collected here and set once the component is complete.
+        StringBuilder componentText = new StringBuilder();
         ChatColor componentNewColor = null;
         boolean firstColor = true;
-        for (int index = 0; index < message.length(); index += 1) {
+        int length = message.length();
+        for (int index = 0; index < length; index += 1) {
             boolean makeComponent = false;
             char character = message.charAt(index);
-            if (index == message.length() - 1) {
+            if (index == length - 1) {
                 makeComponent = true;
-                component.setText(component.getText() + character);
+                componentText.append(character);
             } else if (character != '§') {
-                component.setText(component.getText() + character);
+                componentText.append(character);
             } else {
                 char hexColorCharacter = message.charAt(index + 1);
-                if ((hexColorCharacter == 'x' || hexColorCharacter == 'X') && HEX_COLORS_SUPPORTED) {
+                // Hex colors that are cut off or invalid are read as separate codes.
+                if ((hexColorCharacter == 'x' || hexColorCharacter == 'X') && HEX_COLORS_SUPPORTED && index + 13 < length) {
                     StringBuilder hexColor = new StringBuilder();
                     for (int j = 3; j <= 13; j += 2) {
                         hexColor.append(message.charAt(index + j));
                     }
                     try {
-                        index += 13;
                         component.setColor(ChatColor.of("#" + hexColor));
+                        index += 13;
                         firstColor = false;
                         continue;
                     } catch (IllegalArgumentException ignored) {
@@ -227,10 +244,12 @@ public final class MessageUtils {
                         componentNewColor = color;
                     }
                 } else {
-                    component.setText(component.getText() + character);
+                    componentText.append(character);
                 }
             }
             if (makeComponent) {
+                component.setText(componentText.toString());
+                componentText.setLength(0);
                 finalComponent.addExtra(component);
                 component = new TextComponent();
                 if (componentNewColor != null) {
@@ -242,6 +261,11 @@ public final class MessageUtils {
                 }
             }
         }
+        // Components are only completed at the last character, so text of messages that end with a code has to be added here.
+        if (componentText.length() > 0) {
+            component.setText(componentText.toString());
+            finalComponent.addExtra(component);
+        }
         return new BaseComponent[] {finalComponent};
     }
     
@@ -262,13 +286,7 @@ public final class MessageUtils {
     }
     
     public static boolean isJson(String message) {
-        try {
-            // Streams is being used instead of JsonParser as JsonParser parses the string in lenient mode which we do not want.
-            Streams.parse(new JsonReader(new StringReader(message)));
-            return true;
-        } catch (JsonParseException exception) {
-            return false;
-        }
+        return JsonClassifier.isJson(message);
     }
     
     public static void logMessage(Logger logger, MessagePlace place, Player player, String messageId, boolean json, String message) {
@@ -285,7 +303,9 @@ public final class MessageUtils {
             logger.log(Level.INFO, "Message: '" + matcher.replaceAll("&$1").replace("\\", "\\\\") + "'" + messageSuffix);
             logger.log(Level.INFO, "Message clear: '" + matcher.replaceAll("") + "'");
         }
-        logger.log(Level.INFO, "Message ID: '" + messageId + "'");
+        if (messageId != null) {
+            logger.log(Level.INFO, "Message ID: '" + messageId + "'");
+        }
     }
     
     public static String retrieveMessage(PacketContainer packet, PacketType simulatedPacketType) {
@@ -316,39 +336,31 @@ public final class MessageUtils {
         return packet.getStrings().readSafely(0);
     }
     
-    public static void updateMessage(PacketContainer packet, PacketType simulatedPacketType, String message, boolean json) {
+    // Whether the message returned by retrieveMessage is JSON. Only plain strings, read from system chat packets before 1.20.4, have to be checked.
+    public static boolean isRetrievedMessageJson(PacketType simulatedPacketType, String message) {
+        if (simulatedPacketType == PacketType.Play.Server.SYSTEM_CHAT && !MinecraftVersion.v1_20_4.atOrAbove()) {
+            return isJson(message);
+        }
+        return true;
+    }
+    
+    public static void updateMessage(PacketContainer packet, PacketType simulatedPacketType, MessageOutput message) {
         if (simulatedPacketType == PacketType.Play.Server.CHAT) {
             if (packet.getChatComponents().readSafely(0) != null) {
-                if (json) {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
-                } else {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(toJson(toBaseComponents(message), true)));
-                }
+                packet.getChatComponents().write(0, message.getChatComponent());
             } else if (packet.getSpecificModifier(BaseComponent[].class).size() == 1) {
-                if (json) {
-                    packet.getSpecificModifier(BaseComponent[].class).write(0, ComponentSerializer.parse(message));
-                } else {
-                    packet.getSpecificModifier(BaseComponent[].class).write(0, toBaseComponents(message));
-                }
+                packet.getSpecificModifier(BaseComponent[].class).write(0, message.getBaseComponents());
             }
         } else if (simulatedPacketType == PacketType.Play.Server.SYSTEM_CHAT) {
             // Adventure may be present, but it is not guaranteed that packets use it.
             if (ADVENTURE_PRESENT && packet.getSpecificModifier(Component.class).readSafely(0) != null) {
-                packet.getSpecificModifier(Component.class).write(0, GsonComponentSerializer.gson().deserialize(message));
+                packet.getSpecificModifier(Component.class).write(0, message.getAdventureComponent());
                 return;
             }
-            if (json) {
-                if (MinecraftVersion.v1_20_4.atOrAbove()) {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
-                } else {
-                    packet.getStrings().write(0, message);
-                }
+            if (MinecraftVersion.v1_20_4.atOrAbove()) {
+                packet.getChatComponents().write(0, message.getChatComponent());
             } else {
-                if (MinecraftVersion.v1_20_4.atOrAbove()) {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(toJson(toBaseComponents(message), true)));
-                } else {
-                    packet.getStrings().write(0, toJson(toBaseComponents(message), true));
-                }
+                packet.getStrings().write(0, message.getJson());
             }
         }
     }
@@ -0,0 +1,100 @@
+package dev.jaqobb.message_editor.watcher;
+
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+// Watches the 'edits' directory and updates message edits of changed files once no file has changed for the given delay,
+// so files that are saved several times in a row, or are still being written, are loaded only once.
+public class MessageEditWatcher implements Runnable {
+    
+    private final MessageEditorPlugin plugin;
+    private final long delay;
+    private final WatchService watchService;
+    private final Thread thread;
+    
+    public MessageEditWatcher(MessageEditorPlugin plugin, Path directory, long delay) throws IOException {
+        this.plugin = plugin;
+        this.delay = delay;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this, "Message Editor Edit Watcher");
+        this.thread.setDaemon(true);
+    }
+    
+    public void start() {
+        this.thread.start();
+    }
+    
+    public void close() {
+        try {
+            this.watchService.close();
+        } catch (IOException exception) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not stop watching 'edits' directory.", exception);
+        }
+    }
+    
+    @Override
+    public void run() {
+        Set<String> changedFiles = new LinkedHashSet<>();
+        boolean overflow = false;
+        try {
+            while (true) {
+                WatchKey key = changedFiles.isEmpty() && !overflow ? this.watchService.take() : this.watchService.poll(this.delay, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    this.update(changedFiles, overflow);
+                    changedFiles.clear();
+                    overflow = false;
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                        continue;
+                    }
+                    changedFiles.add(((Path) event.context()).getFileName().toString());
+                }
+                if (!key.reset()) {
+                    this.plugin.getLogger().log(Level.WARNING, "'edits' directory can no longer be watched.");
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException exception) {
+            // The plugin is being disabled.
+        }
+    }
+    
+    private void update(Set<String> changedFiles, boolean overflow) {
+        try {
+            // Some changes were lost, so all files have to be loaded again, until they are published.
+            if (overflow) {
+                while (true) {
+                    try {
+                        this.plugin.reloadMessageEdits().join();
+                        this.plugin.clearCachedMessages();
+                        return;
+                    } catch (CancellationException | CompletionException exception) {
+                        if (!(exception instanceof CancellationException) && !(exception.getCause() instanceof CancellationException)) {
+                            throw exception;
+                        }
+                    }
+                }
+            }
+            this.plugin.updateMessageEdits(changedFiles);
+        } catch (RuntimeException exception) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not update message edits.", exception);
+        }
+    }
+}
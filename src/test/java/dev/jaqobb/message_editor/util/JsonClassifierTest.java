@@ -0,0 +1,185 @@
+package dev.jaqobb.message_editor.util;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonClassifierTest {
+    
+    // How MessageUtils#isJson classified messages before JsonClassifier was used.
+    private static boolean isJsonWithGson(String message) {
+        try {
+            Streams.parse(new JsonReader(new StringReader(message)));
+            return true;
+        } catch (JsonParseException exception) {
+            return false;
+        }
+    }
+    
+    // What JsonClassifier should return: what Gson accepts, limited to a single object, array or string taking up the whole message.
+    private static boolean isSingleJsonValueWithGson(String message) {
+        int index = 0;
+        while (index < message.length() && " \t\n\r".indexOf(message.charAt(index)) != -1) {
+            index += 1;
+        }
+        if (index == message.length() || "{[\"".indexOf(message.charAt(index)) == -1) {
+            return false;
+        }
+        JsonReader reader = new JsonReader(new StringReader(message));
+        try {
+            Streams.parse(reader);
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (JsonParseException | IOException exception) {
+            return false;
+        }
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{}",
+        "[]",
+        "\"\"",
+        "\"text\"",
+        " \t\r\n{ } \t\r\n",
+        "{\"text\":\"Hello\"}",
+        "{\"text\":\"\",\"extra\":[{\"text\":\"Hello\",\"color\":\"red\",\"bold\":true},\"World\"]}",
+        "[\"\",{\"text\":\"a\"},{\"text\":\"b\",\"italic\":false}]",
+        "{\"a\":null,\"b\":true,\"c\":false}",
+        "[0,-0,1,-1,10,1.5,-0.25,1e5,1E+5,1e-5,12.5E-3]",
+        "[True,FALSE,nUlL]",
+        "{\"a\":{\"b\":{\"c\":[[[[]]]]}}}",
+        "\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00A7\\uFFFF\"",
+        "\"raw\ncontrol\tcharacters\"",
+        "\"\\'\"",
+        "{\"text\":\"§aColored\"}",
+        "{\"key\" : \"value\" , \"other\" : [ 1 , 2 ] }"
+    })
+    void acceptsJsonAcceptedByGson(String message) {
+        assertTrue(isJsonWithGson(message));
+        assertTrue(JsonClassifier.isJson(message));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "Hello",
+        "§aHello",
+        "{",
+        "[",
+        "\"",
+        "}",
+        "{\"a\"}",
+        "{\"a\":}",
+        "{\"a\" 1}",
+        "{a:1}",
+        "{'a':1}",
+        "['a']",
+        "{\"a\":1,}",
+        "[1,]",
+        "[,1]",
+        "[1 2]",
+        "{\"a\":1 \"b\":2}",
+        "[1;2]",
+        "{\"a\"=1}",
+        "[01]",
+        "[1.]",
+        "[.5]",
+        "[-]",
+        "[1e]",
+        "[1e+]",
+        "[+1]",
+        "[NaN]",
+        "[Infinity]",
+        "[tru]",
+        "[nulls]",
+        "[null1]",
+        "\"\\x\"",
+        "\"\\u12G4\"",
+        "\"\\u12\"",
+        "\"unterminated",
+        "[\"unterminated]",
+        "{\"a\":1]",
+        "[1}",
+        "{/*comment*/}",
+        "[#comment\n1]"
+    })
+    void rejectsJsonRejectedByGson(String message) {
+        assertFalse(isJsonWithGson(message));
+        assertFalse(JsonClassifier.isJson(message));
+    }
+    
+    // Gson only reads the first value and ignores anything after it, while the whole message has to be a single value.
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{}{}",
+        "{} {}",
+        "[1] text",
+        "[1]#comment",
+        "{\"text\":\"a\"} trailing",
+        "\"a\"\"b\""
+    })
+    void rejectsTrailingContentAcceptedByGson(String message) {
+        assertTrue(isJsonWithGson(message));
+        assertFalse(JsonClassifier.isJson(message));
+    }
+    
+    // Gson reads empty messages as JSON null, and bare numbers and literals as JSON values, but these are never chat components.
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "   ",
+        "0",
+        "42",
+        "-1.5",
+        "1e5",
+        "true",
+        "false",
+        "null"
+    })
+    void rejectsEmptyMessagesAndBareValuesAcceptedByGson(String message) {
+        assertTrue(isJsonWithGson(message));
+        assertFalse(JsonClassifier.isJson(message));
+    }
+    
+    @Test
+    void acceptsDeeplyNestedContainers() {
+        for (int depth : new int[] {63, 64, 65, 127, 128, 129, 300}) {
+            String message = "[{\"a\":".repeat(depth) + "1" + "}]".repeat(depth);
+            assertEquals(isJsonWithGson(message), JsonClassifier.isJson(message), "depth " + depth);
+            assertTrue(JsonClassifier.isJson(message), "depth " + depth);
+        }
+    }
+    
+    @Test
+    void rejectsDeeplyNestedContainersClosedWithWrongBrackets() {
+        for (int depth : new int[] {63, 64, 65, 127, 128, 129, 300}) {
+            String message = "[{\"a\":".repeat(depth) + "1" + "]}".repeat(depth);
+            assertFalse(isJsonWithGson(message), "depth " + depth);
+            assertFalse(JsonClassifier.isJson(message), "depth " + depth);
+        }
+    }
+    
+    @Test
+    void agreesWithGsonOnGeneratedMessages() {
+        String[] tokens = {"{", "}", "[", "]", "\"", "\"a\"", ":", ",", " ", "\n", "\\", "\\u", "\\n", "0", "1", "9", "-", "+", ".", "e", "E", "true", "True", "false", "null", "nul", "a", "x", "'", "#", "/", "§"};
+        Random random = new Random(0L);
+        for (int iteration = 0; iteration < 200000; iteration += 1) {
+            StringBuilder message = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int index = 0; index < length; index += 1) {
+                message.append(tokens[random.nextInt(tokens.length)]);
+            }
+            String generated = message.toString();
+            assertEquals(isSingleJsonValueWithGson(generated), JsonClassifier.isJson(generated), generated);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package dev.jaqobb.message_editor.util;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageUtilsTest {
+    
+    // MessageUtils#toBaseComponents as it was before its text was collected in a StringBuilder.
+    private static BaseComponent[] toBaseComponentsBefore(String message) {
+        TextComponent finalComponent = new TextComponent();
+        TextComponent component = new TextComponent();
+        ChatColor componentNewColor = null;
+        boolean firstColor = true;
+        for (int index = 0; index < message.length(); index += 1) {
+            boolean makeComponent = false;
+            char character = message.charAt(index);
+            if (index == message.length() - 1) {
+                makeComponent = true;
+                component.setText(component.getText() + character);
+            } else if (character != '§') {
+                component.setText(component.getText() + character);
+            } else {
+                char hexColorCharacter = message.charAt(index + 1);
+                if ((hexColorCharacter == 'x' || hexColorCharacter == 'X') && MessageUtils.HEX_COLORS_SUPPORTED) {
+                    StringBuilder hexColor = new StringBuilder();
+                    for (int j = 3; j <= 13; j += 2) {
+                        hexColor.append(message.charAt(index + j));
+                    }
+                    try {
+                        index += 13;
+                        component.setColor(ChatColor.of("#" + hexColor));
+                        firstColor = false;
+                        continue;
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+                ChatColor color = ChatColor.getByChar(message.charAt(index + 1));
+                if (color != null) {
+                    index += 1;
+                    if ((color != component.getColor() && firstColor) || color == ChatColor.MAGIC || color == ChatColor.BOLD || color == ChatColor.STRIKETHROUGH || color == ChatColor.UNDERLINE || color == ChatColor.ITALIC) {
+                        if (color == ChatColor.MAGIC) {
+                            component.setObfuscated(true);
+                        } else if (color == ChatColor.BOLD) {
+                            component.setBold(true);
+                        } else if (color == ChatColor.STRIKETHROUGH) {
+                            component.setStrikethrough(true);
+                        } else if (color == ChatColor.UNDERLINE) {
+                            component.setUnderlined(true);
+                        } else if (color == ChatColor.ITALIC) {
+                            component.setItalic(true);
+                        } else {
+                            component.setColor(color);
+                            firstColor = false;
+                        }
+                    } else {
+                        makeComponent = true;
+                        componentNewColor = color;
+                    }
+                } else {
+                    component.setText(component.getText() + character);
+                }
+            }
+            if (makeComponent) {
+                finalComponent.addExtra(component);
+                component = new TextComponent();
+                if (componentNewColor != null) {
+                    component.setColor(componentNewColor);
+                    componentNewColor = null;
+                    firstColor = false;
+                } else {
+                    firstColor = true;
+                }
+            }
+        }
+        return new BaseComponent[] {finalComponent};
+    }
+    
+    private static String describe(BaseComponent[] components) {
+        return ComponentSerializer.toString(components);
+    }
+    
+    private static String describeBefore(String message) {
+        try {
+            return describe(toBaseComponentsBefore(message));
+        } catch (RuntimeException exception) {
+            return exception.getClass().getName();
+        }
+    }
+    
+    private static String describeNow(String message) {
+        try {
+            return describe(MessageUtils.toBaseComponents(message));
+        } catch (RuntimeException exception) {
+            return exception.getClass().getName();
+        }
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "a",
+        "Hello",
+        "§aHello",
+        "§aHello §bWorld",
+        "§a§lBold green §r§7reset gray",
+        "§k§l§m§n§oAll formats",
+        "§aSame §acolor",
+        "Trailing section sign §",
+        "§",
+        "Invalid §zcode",
+        "§x§f§f§0§0§0§0Hex red",
+        "§X§F§F§0§0§0§0Upper hex",
+        "§x§f§f§0§0§0§0Hex §x§0§0§f§f§0§0colors",
+        "Text §x§1§2§3§4§5§6then hex",
+        "§x§1§2§3§4§5§6",
+        "§x§1§2§3§4§5§6§aText after hex and color",
+        "§a§x§1§2§3§4§5§6Color before hex",
+        "§r§r§r§rResets",
+        "§l§x§a§b§c§d§e§fBold hex §rreset"
+    })
+    void toBaseComponentsMatchesPreviousOutput(String message) {
+        assertEquals(describeBefore(message), describeNow(message), message);
+    }
+    
+    // Generated messages never end with a code and only contain complete hex colors, which the previous output was correct for.
+    @Test
+    void toBaseComponentsMatchesPreviousOutputOnGeneratedMessages() {
+        String[] tokens = {"a", "b", " ", "§", "§§", "§a", "§c", "§0", "§f", "§F", "§k", "§l", "§m", "§n", "§o", "§r", "§z", "§x§1§2§3§4§5§6", "§X§a§B§c§D§e§F", "§x§0§0§0§0§0§0"};
+        Random random = new Random(0L);
+        for (int iteration = 0; iteration < 100000; iteration += 1) {
+            StringBuilder message = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int index = 0; index < length; index += 1) {
+                message.append(tokens[random.nextInt(tokens.length)]);
+            }
+            message.append('z');
+            String generated = message.toString();
+            assertEquals(describeBefore(generated), describeNow(generated), generated);
+        }
+    }
+    
+    // Text of messages ending with a code used to be dropped.
+    @Test
+    void toBaseComponentsKeepsTextBeforeTrailingCodes() {
+        assertEquals("{\"text\":\"\"}", describeBefore("Ends in hex §x§1§2§3§4§5§6"));
+        assertEquals("{\"extra\":[{\"color\":\"#123456\",\"text\":\"Ends in hex \"}],\"text\":\"\"}", describeNow("Ends in hex §x§1§2§3§4§5§6"));
+        assertEquals("{\"text\":\"\"}", describeBefore("Ends in color §c"));
+        assertEquals("{\"extra\":[{\"color\":\"red\",\"text\":\"Ends in color \"}],\"text\":\"\"}", describeNow("Ends in color §c"));
+        assertEquals("{\"text\":\"\"}", describeBefore("§§a"));
+        assertEquals("{\"extra\":[{\"color\":\"green\",\"text\":\"§\"}],\"text\":\"\"}", describeNow("§§a"));
+    }
+    
+    // Invalid hex colors used to skip the following characters, and the next code took the first character after them.
+    @Test
+    void toBaseComponentsReadsInvalidHexColorsAsSeparateCodes() {
+        assertEquals("{\"extra\":[{\"color\":\"green\",\"text\":\"bc\"}],\"text\":\"\"}", describeBefore("§x§r§r§r§r§r§rabc"));
+        assertEquals("{\"extra\":[{\"color\":\"reset\",\"text\":\"§x\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"abc\"}],\"text\":\"\"}", describeNow("§x§r§r§r§r§r§rabc"));
+        assertEquals("{\"extra\":[{\"color\":\"green\",\"text\":\"§abc\"}],\"text\":\"\"}", describeBefore("§x§r§r§r§r§r§r§aabc"));
+        assertEquals("{\"extra\":[{\"color\":\"reset\",\"text\":\"§x\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"green\",\"text\":\"abc\"}],\"text\":\"\"}", describeNow("§x§r§r§r§r§r§r§aabc"));
+        assertEquals(StringIndexOutOfBoundsException.class.getName(), describeBefore("§x§r§r§r§r§r§r"));
+        assertEquals("{\"extra\":[{\"color\":\"reset\",\"text\":\"§x\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"},{\"color\":\"reset\",\"text\":\"\"}],\"text\":\"\"}", describeNow("§x§r§r§r§r§r§r"));
+    }
+    
+    // Hex colors cut off by the end of the message used to throw.
+    @Test
+    void toBaseComponentsReadsCutOffHexColorsAsSeparateCodes() {
+        assertEquals(StringIndexOutOfBoundsException.class.getName(), describeBefore("Ends in cut off hex §x§1§2"));
+        assertEquals("{\"extra\":[{\"color\":\"dark_blue\",\"text\":\"Ends in cut off hex §x\"}],\"text\":\"\"}", describeNow("Ends in cut off hex §x§1§2"));
+        assertEquals(StringIndexOutOfBoundsException.class.getName(), describeBefore("§x"));
+        assertEquals("{\"extra\":[{\"text\":\"§x\"}],\"text\":\"\"}", describeNow("§x"));
+    }
+}